@@ -0,0 +1,51 @@
+package net.desmond.bankingApp.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import net.desmond.bankingApp.utils.HashingUtil;
+import net.desmond.bankingApp.utils.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//login (bcrypt), token issue and the per-request token check
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthBenchmark {
+
+    private String passwordHash;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        passwordHash = HashingUtil.hashPassword("correct horse battery staple");
+        token = JwtUtil.generateToken(42L, "user");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean verifyPassword() {
+        return HashingUtil.verifyPassword("correct horse battery staple", passwordHash);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JwtUtil.generateToken(42L, "user");
+    }
+
+    //what JwtAuthenticationFilter does on a token cache miss
+    @Benchmark
+    public Claims parseToken() {
+        return JwtUtil.parseClaims(token);
+    }
+
+    //the old per-endpoint pattern, two full parses for id and role
+    @Benchmark
+    public Object extractUserIdAndRole() {
+        return JwtUtil.extractUserId(token) + JwtUtil.extractRole(token);
+    }
+}
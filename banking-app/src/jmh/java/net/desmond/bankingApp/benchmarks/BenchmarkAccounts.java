@@ -0,0 +1,61 @@
+package net.desmond.bankingApp.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.secureVault.AccountCredRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Proxy;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//account fixtures without Spring or a database, the private keys live in a map behind a proxied AccountCredRepository
+class BenchmarkAccounts {
+
+    final Map<Long, String> privateKeys = new HashMap<>();
+    final AccountKeyManager accountKeyManager;
+
+    BenchmarkAccounts() {
+        this.accountKeyManager = new AccountKeyManager(credRepository(), new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(10));
+    }
+
+    //plain account with wrapped key set, ready for Mapper.mapToEncryptedAccount
+    Account plainAccount(long id) throws Exception {
+        SecretKey aesKey = KeyGeneratorUtil.generateAESKey();
+        KeyPair rsaKeyPair = KeyGeneratorUtil.generateRSAKeyPair();
+        privateKeys.put(id, KeyGeneratorUtil.encodeKeyToBase64(rsaKeyPair.getPrivate()));
+
+        Account account = new Account(id, "Benchmark Holder " + id, 1234_56, "221B Baker Street, London", "holder" + id + "@silverstone.test");
+        account.setAesEncryptedKey(EncryptionUtil.encryptAESKeyWithRSA(aesKey, rsaKeyPair.getPublic()));
+        account.setRsaPublicKey(KeyGeneratorUtil.encodeKeyToBase64(rsaKeyPair.getPublic()));
+        account.setRole("user");
+        account.setVerificationStatus("verified");
+        return account;
+    }
+
+    private AccountCredRepository credRepository() {
+        return (AccountCredRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AccountCredRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findPrivateKeyByAccountId" -> privateKeys.get((Long) args[0]);
+                    case "findPrivateKeysByAccountIds" -> {
+                        List<Object[]> rows = new ArrayList<>();
+                        for (Object id : (Collection<?>) args[0]) {
+                            rows.add(new Object[]{id, privateKeys.get((Long) id)});
+                        }
+                        yield rows;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "BenchmarkAccountCredRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
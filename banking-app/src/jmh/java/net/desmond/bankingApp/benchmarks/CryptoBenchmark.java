@@ -0,0 +1,76 @@
+package net.desmond.bankingApp.benchmarks;
+
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+//single field AES, RSA key wrap/unwrap and private key decoding, the building blocks of every mapper call
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoBenchmark {
+
+    private SecretKey aesKey;
+    private KeyPair rsaKeyPair;
+    private String plainField;
+    private String encryptedField;
+    private String wrappedAesKey;
+    private String base64PrivateKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        aesKey = KeyGeneratorUtil.generateAESKey();
+        rsaKeyPair = KeyGeneratorUtil.generateRSAKeyPair();
+        plainField = "holder@silverstone.test";
+        encryptedField = EncryptionUtil.encryptWithAES(plainField, aesKey);
+        wrappedAesKey = EncryptionUtil.encryptAESKeyWithRSA(aesKey, rsaKeyPair.getPublic());
+        base64PrivateKey = KeyGeneratorUtil.encodeKeyToBase64(rsaKeyPair.getPrivate());
+    }
+
+    @Benchmark
+    public String aesEncryptField() throws Exception {
+        return EncryptionUtil.encryptWithAES(plainField, aesKey);
+    }
+
+    @Benchmark
+    public String aesDecryptField() throws Exception {
+        return EncryptionUtil.decryptWithAES(encryptedField, aesKey);
+    }
+
+    @Benchmark
+    public String[] aesEncryptSixFields() throws Exception {
+        byte[] field = plainField.getBytes();
+        return EncryptionUtil.encryptAllWithAES(aesKey, field, field, field, field, field, field);
+    }
+
+    @Benchmark
+    public String rsaWrapAesKey() throws Exception {
+        return EncryptionUtil.encryptAESKeyWithRSA(aesKey, rsaKeyPair.getPublic());
+    }
+
+    @Benchmark
+    public SecretKey rsaUnwrapAesKey() throws Exception {
+        return EncryptionUtil.decryptAESKeyWithRSA(wrappedAesKey, rsaKeyPair.getPrivate());
+    }
+
+    @Benchmark
+    public PrivateKey decodePrivateKey() throws Exception {
+        return KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
+    }
+
+    //runs at a few dozen ops/s, measured as time per key pair instead
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public KeyPair generateRsaKeyPair() throws Exception {
+        return KeyGeneratorUtil.generateRSAKeyPair();
+    }
+}
@@ -0,0 +1,78 @@
+package net.desmond.bankingApp.benchmarks;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.transactions.Transaction;
+import net.desmond.bankingApp.transactions.TransactionDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//entity <-> encrypted entity mapping, with the AES key cached (normal request) and with a forced RSA unwrap (cold key)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private static final int SENDERS = 10;
+    private static final int PAGE = 50;
+
+    private BenchmarkAccounts accounts;
+    private Account plainAccount;
+    private Account encryptedAccount;
+    private Transaction encryptedTransaction;
+    private List<Transaction> transactionPage;
+
+    @Setup
+    public void setUp() throws Exception {
+        accounts = new BenchmarkAccounts();
+        plainAccount = accounts.plainAccount(1L);
+        encryptedAccount = Mapper.mapToEncryptedAccount(plainAccount, accounts.accountKeyManager);
+
+        List<Account> senders = new ArrayList<>(SENDERS);
+        for (long sender = 2; sender < 2 + SENDERS; sender++) {
+            senders.add(accounts.plainAccount(sender));
+        }
+        transactionPage = new ArrayList<>(PAGE);
+        for (int i = 0; i < PAGE; i++) {
+            Account sender = senders.get(i % SENDERS);
+            Transaction transaction = new Transaction(sender.getAccountId(), 1L, 10_00 + i, "success", sender.getAesEncryptedKey());
+            Transaction encrypted = Mapper.mapToEncryptedTransaction(transaction, accounts.accountKeyManager);
+            encrypted.setTransId((long) i + 1);
+            transactionPage.add(encrypted);
+        }
+        encryptedTransaction = transactionPage.get(0);
+    }
+
+    @Benchmark
+    public Account mapToEncryptedAccount() throws Exception {
+        return Mapper.mapToEncryptedAccount(plainAccount, accounts.accountKeyManager);
+    }
+
+    @Benchmark
+    public Account mapToDecryptedAccount() throws Exception {
+        return Mapper.mapToDecryptedAccount(encryptedAccount, accounts.accountKeyManager);
+    }
+
+    @Benchmark
+    public Account mapToDecryptedAccountColdKey() throws Exception {
+        accounts.accountKeyManager.invalidate(encryptedAccount.getAccountId());
+        return Mapper.mapToDecryptedAccount(encryptedAccount, accounts.accountKeyManager);
+    }
+
+    @Benchmark
+    public Transaction mapToDecryptedTransaction() throws Exception {
+        return Mapper.mapToDecryptedTransaction(encryptedTransaction, accounts.accountKeyManager);
+    }
+
+    //one history page, ops/s here is pages per second
+    @Benchmark
+    public List<TransactionDto> mapTransactionPage() throws Exception {
+        return Mapper.mapToDecryptedTransactionDtos(transactionPage, accounts.accountKeyManager);
+    }
+}
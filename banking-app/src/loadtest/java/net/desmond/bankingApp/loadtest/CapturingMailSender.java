@@ -0,0 +1,50 @@
+package net.desmond.bankingApp.loadtest;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+//stands in for SMTP under the loadtest profile, keeps the last mail body per recipient so the driver can follow verification links
+@Component
+@Profile("loadtest")
+public class CapturingMailSender implements JavaMailSender {
+
+    private final Session session = Session.getInstance(new Properties());
+    private final Map<String, String> lastBodyByRecipient = new ConcurrentHashMap<>();
+
+    public String lastBodyFor(String recipient) {
+        return lastBodyByRecipient.get(recipient);
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) {
+        for (SimpleMailMessage message : simpleMessages) {
+            for (String recipient : message.getTo()) {
+                lastBodyByRecipient.put(recipient, message.getText());
+            }
+        }
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage(session);
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) {
+        throw new UnsupportedOperationException("MIME mail is not used by the app");
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) {
+        throw new UnsupportedOperationException("MIME mail is not used by the app");
+    }
+}
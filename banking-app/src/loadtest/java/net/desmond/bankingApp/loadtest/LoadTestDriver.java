@@ -0,0 +1,306 @@
+package net.desmond.bankingApp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.desmond.bankingApp.BankingAppApplication;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//boots the app under the loadtest profile (H2 in MySQL mode, captured mail), seeds and verifies accounts over HTTP,
+//then runs a weighted mix of requests from concurrent clients and prints per endpoint throughput and latency percentiles.
+//clients are closed loop (next request only after the previous answer), so the numbers are service time under that concurrency
+//settings are key=value arguments: accounts, clients, warmup and duration (seconds), mix (endpoint:weight,...), out (directory)
+public class LoadTestDriver {
+
+    private static final ObjectMapper json = new ObjectMapper();
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String baseUrl;
+    private final Settings settings;
+    private final CapturingMailSender mailSender;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, ConcurrentHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(BankingAppApplication.class)
+                .profiles("loadtest")
+                .run();
+        try {
+            String port = app.getEnvironment().getProperty("local.server.port");
+            new LoadTestDriver("http://localhost:" + port, settings, app.getBean(CapturingMailSender.class)).run();
+        } finally {
+            app.close();
+        }
+    }
+
+    LoadTestDriver(String baseUrl, Settings settings, CapturingMailSender mailSender) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+        this.mailSender = mailSender;
+        for (String endpoint : settings.mix().keySet()) {
+            latencies.put(endpoint, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    void run() throws Exception {
+        System.out.printf("Seeding %d accounts against %s%n", settings.accounts(), baseUrl);
+        List<SeededAccount> accounts = seed();
+
+        System.out.printf("Running %d clients, %ds warmup + %ds measured, mix %s%n",
+                settings.clients(), settings.warmupSeconds(), settings.durationSeconds(), settings.mix());
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+        long runUntil = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+
+        ExecutorService clients = Executors.newFixedThreadPool(settings.clients());
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < settings.clients(); i++) {
+            running.add(clients.submit(() -> client(accounts, measureFrom, runUntil)));
+        }
+        for (Future<?> client : running) {
+            client.get();
+        }
+        clients.shutdown();
+
+        report();
+    }
+
+    private List<SeededAccount> seed() throws Exception {
+        ExecutorService seeders = Executors.newFixedThreadPool(settings.clients());
+        List<Future<SeededAccount>> seeding = new ArrayList<>();
+        for (int i = 0; i < settings.accounts(); i++) {
+            int index = i;
+            seeding.add(seeders.submit(() -> seedAccount(index)));
+        }
+        List<SeededAccount> accounts = new ArrayList<>();
+        for (Future<SeededAccount> account : seeding) {
+            accounts.add(account.get());
+        }
+        seeders.shutdown();
+        return accounts;
+    }
+
+    private SeededAccount seedAccount(int index) throws Exception {
+        String email = "loadtest" + index + "@silverstone.test";
+        String password = "loadtest-" + index;
+
+        Map<String, Object> signup = Map.of(
+                "accountHolderName", "Load Test " + index,
+                "balance", "1000000.00",
+                "accountHolderAddress", "Load Test Street " + index,
+                "accountHolderEmailAddress", email,
+                "accountHolderRole", "user",
+                "password", password);
+        HttpResponse<String> created = send(json("POST", "/bank", signup, null));
+        expectOk(created, "create account " + email);
+        long id = json.readTree(created.body()).get("accountId").asLong();
+
+        expectOk(send(get(verificationPath(email), null)), "verify " + email);
+
+        HttpResponse<String> login = send(json("POST", "/bank/login", Map.of("email", email, "password", password), null));
+        expectOk(login, "login " + email);
+        return new SeededAccount(id, email, password, json.readTree(login.body()).get("token").asText());
+    }
+
+    //the mail goes through the outbox, wait for the dispatcher to hand it to CapturingMailSender
+    private String verificationPath(String email) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            String body = mailSender.lastBodyFor(email);
+            if (body != null) {
+                int start = body.indexOf("/bank/verify?");
+                int end = body.indexOf('\n', start);
+                return body.substring(start, end < 0 ? body.length() : end).trim();
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("No verification mail for " + email);
+    }
+
+    private void client(List<SeededAccount> accounts, long measureFrom, long runUntil) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < runUntil) {
+            String endpoint = settings.pick(random);
+            SeededAccount caller = accounts.get(random.nextInt(accounts.size()));
+
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<String> response = send(request(endpoint, caller, accounts, random));
+                ok = response.statusCode() / 100 == 2;
+            } catch (Exception e) {
+                ok = false;
+            }
+            long end = System.nanoTime();
+
+            if (start >= measureFrom && end <= runUntil) {
+                latencies.get(endpoint).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(end - start), HIGHEST_TRACKABLE_MICROS));
+                if (!ok) {
+                    errors.get(endpoint).increment();
+                }
+            }
+        }
+    }
+
+    private HttpRequest request(String endpoint, SeededAccount caller, List<SeededAccount> accounts, ThreadLocalRandom random) throws Exception {
+        String amount = MoneyUtil.format(random.nextLong(1_00, 100_00));
+        return switch (endpoint) {
+            case "login" -> json("POST", "/bank/login", Map.of("email", caller.email(), "password", caller.password()), null);
+            case "sendTo" -> {
+                SeededAccount receiver = accounts.get(random.nextInt(accounts.size()));
+                if (receiver.id() == caller.id()) {
+                    receiver = accounts.get((accounts.indexOf(receiver) + 1) % accounts.size());
+                }
+                yield json("PUT", "/bank/accounts/sendTo", Map.of("receiverId", receiver.id(), "amount", amount), caller.token());
+            }
+            case "deposit" -> json("PUT", "/bank/accounts/deposit", Map.of("amount", amount), caller.token());
+            case "history" -> get("/bank/transactions/" + caller.id() + "?size=50", caller.token());
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    private void report() throws Exception {
+        Path out = Path.of(settings.outputDirectory());
+        Files.createDirectories(out);
+
+        System.out.printf("%n%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, ConcurrentHistogram> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long endpointErrors = errors.get(entry.getKey()).sum();
+            printRow(entry.getKey(), histogram, endpointErrors);
+            total.add(histogram);
+            totalErrors += endpointErrors;
+
+            //full distribution for plotting (e.g. HdrHistogram's online plotter), values in milliseconds
+            try (PrintStream file = new PrintStream(out.resolve(entry.getKey() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(file, 1000.0);
+            }
+        }
+        printRow("total", total, totalErrors);
+        System.out.printf("%nPercentile distributions written to %s%n", out.toAbsolutePath());
+    }
+
+    private void printRow(String name, Histogram histogram, long errorCount) {
+        System.out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errorCount,
+                histogram.getTotalCount() / (double) settings.durationSeconds(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private HttpRequest json(String method, String path, Map<String, Object> body, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void expectOk(HttpResponse<String> response, String step) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(step + " failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    record SeededAccount(long id, String email, String password, String token) {
+    }
+
+    record Settings(int accounts, int clients, int warmupSeconds, int durationSeconds, Map<String, Integer> mix,
+                    String outputDirectory) {
+
+        static Settings parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put("accounts", "50");
+            values.put("clients", "16");
+            values.put("warmup", "10");
+            values.put("duration", "60");
+            values.put("mix", "login:1,sendTo:4,deposit:2,history:3");
+            values.put("out", "target/loadtest");
+            for (String arg : args) {
+                int split = arg.indexOf('=');
+                if (split < 0 || !values.containsKey(arg.substring(0, split))) {
+                    throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + values.keySet());
+                }
+                values.put(arg.substring(0, split), arg.substring(split + 1));
+            }
+
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String part : values.get("mix").split(",")) {
+                String[] endpointWeight = part.split(":");
+                mix.put(endpointWeight[0].trim(), Integer.parseInt(endpointWeight[1].trim()));
+            }
+            return new Settings(
+                    Integer.parseInt(values.get("accounts")),
+                    Integer.parseInt(values.get("clients")),
+                    Integer.parseInt(values.get("warmup")),
+                    Integer.parseInt(values.get("duration")),
+                    mix,
+                    values.get("out"));
+        }
+
+        String pick(ThreadLocalRandom random) {
+            int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int roll = random.nextInt(totalWeight);
+            for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Empty mix");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.desmond.bankingApp.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//bounded concurrency for one class of expensive work. up to maxConcurrent callers run, up to maxQueue more wait at
+//most maxWait for a permit, anyone beyond that is refused at once
+final class Bulkhead {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter admitted;
+    private final Counter rejected;
+
+    Bulkhead(String name, int maxConcurrent, int maxQueue, Duration maxWait, MeterRegistry meterRegistry) {
+        if (maxConcurrent < 1 || maxQueue < 0) {
+            throw new IllegalArgumentException("Bulkhead " + name + " needs at least one permit and a queue of zero or more.");
+        }
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        Gauge.builder("bank.bulkhead.active", this, Bulkhead::active)
+                .description("Callers currently holding a permit")
+                .tag("class", name)
+                .register(meterRegistry);
+        Gauge.builder("bank.bulkhead.queued", queued, AtomicInteger::get)
+                .description("Callers waiting for a permit")
+                .tag("class", name)
+                .register(meterRegistry);
+        this.admitted = callCounter(meterRegistry, name, "admitted");
+        this.rejected = callCounter(meterRegistry, name, "rejected");
+    }
+
+    //true means a permit is held and exit must follow
+    boolean tryEnter() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        boolean entered = false;
+        if (queued.incrementAndGet() <= maxQueue) {
+            try {
+                entered = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } finally {
+                queued.decrementAndGet();
+            }
+        } else {
+            queued.decrementAndGet();
+        }
+        (entered ? admitted : rejected).increment();
+        return entered;
+    }
+
+    void exit() {
+        permits.release();
+    }
+
+    int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("bank.bulkhead.calls")
+                .description("Calls admitted to or refused by a bulkhead")
+                .tag("class", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
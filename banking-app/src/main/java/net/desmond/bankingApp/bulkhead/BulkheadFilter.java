@@ -0,0 +1,168 @@
+package net.desmond.bankingApp.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.desmond.bankingApp.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//admission control in front of the CPU heavy endpoints. bank.bulkhead.routes maps "METHOD pattern=class" (first match
+//wins) and each class gets its own Bulkhead from bank.bulkhead.<class>.max-concurrent, .max-queue and .max-wait, so a
+//burst of logins cannot take every request thread from cheap calls. a full bulkhead answers 503 straight away.
+//runs last of the filters, requests refused by the rate limiter never wait here
+@Component
+@Order(BulkheadFilter.ORDER)
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    public static final int ORDER = JwtAuthenticationFilter.ORDER + 30;
+
+    private record Route(String method, String pattern, Bulkhead bulkhead) {
+    }
+
+    private final List<Route> routes;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public BulkheadFilter(Environment environment,
+                          MeterRegistry meterRegistry,
+                          @Value("${bank.bulkhead.routes:}") List<String> routes) {
+        this.routes = parseRoutes(routes, environment, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = bulkhead(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            if (!bulkhead.tryEnter()) {
+                reject(response);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            //streamed responses (exports) keep their permit until the stream is done
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(bulkhead, released));
+            } else if (released.compareAndSet(false, true)) {
+                bulkhead.exit();
+            }
+        }
+    }
+
+    private Bulkhead bulkhead(String method, String path) {
+        for (Route route : routes) {
+            if (route.method().equals(method) && pathMatcher.match(route.pattern(), path)) {
+                return route.bulkhead();
+            }
+        }
+        return null;
+    }
+
+    //plain string body, as the controller's own error responses
+    private static void reject(HttpServletResponse response) throws IOException {
+        byte[] body = "Server is busy. Please try again shortly.".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static List<Route> parseRoutes(List<String> entries, Environment environment, MeterRegistry meterRegistry) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        Map<String, Bulkhead> bulkheads = new HashMap<>();
+        List<Route> routes = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] route = entry.trim().split("\\s+", 2);
+            int equals = route.length == 2 ? route[1].lastIndexOf('=') : -1;
+            if (equals < 0) {
+                throw new IllegalArgumentException("Bulkhead route must look like 'METHOD /path=class': " + entry);
+            }
+            String name = route[1].substring(equals + 1).trim();
+            Bulkhead bulkhead = bulkheads.computeIfAbsent(name, key -> new Bulkhead(key,
+                    environment.getProperty("bank.bulkhead." + key + ".max-concurrent", Integer.class, processors),
+                    environment.getProperty("bank.bulkhead." + key + ".max-queue", Integer.class, processors),
+                    environment.getProperty("bank.bulkhead." + key + ".max-wait", Duration.class, Duration.ofMillis(100)),
+                    meterRegistry));
+            routes.add(new Route(route[0].toUpperCase(), route[1].substring(0, equals).trim(), bulkhead));
+        }
+        return List.copyOf(routes);
+    }
+
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final Bulkhead bulkhead;
+        private final AtomicBoolean released;
+
+        ReleasingListener(Bulkhead bulkhead, AtomicBoolean released) {
+            this.bulkhead = bulkhead;
+            this.released = released;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.exit();
+            }
+        }
+    }
+}
@@ -1,27 +1,43 @@
 package net.desmond.bankingApp.controller;
 
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
 import net.desmond.bankingApp.dto.AccountDto;
 import net.desmond.bankingApp.entity.Account;
 import net.desmond.bankingApp.entity.AccountCred;
+import net.desmond.bankingApp.export.ExportFormat;
+import net.desmond.bankingApp.export.ExportService;
+import net.desmond.bankingApp.insights.MonthlyAggregateService;
+import net.desmond.bankingApp.mapper.LazyAccount;
 import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.onboarding.BulkOnboardingReport;
+import net.desmond.bankingApp.onboarding.BulkOnboardingService;
+import net.desmond.bankingApp.onboarding.CsvAccountReader;
 import net.desmond.bankingApp.repository.AccountRepository;
 import net.desmond.bankingApp.secureVault.AccountCredRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.security.AuthPrincipal;
+import net.desmond.bankingApp.security.AuthenticationFailedException;
 import net.desmond.bankingApp.service.AccountService;
-import net.desmond.bankingApp.transactions.TransactionDto;
-import net.desmond.bankingApp.utils.EmailService;
+import net.desmond.bankingApp.statements.StatementFormat;
+import net.desmond.bankingApp.statements.StatementService;
+import net.desmond.bankingApp.transactions.BatchTransferLeg;
+import net.desmond.bankingApp.transactions.TransactionFilter;
 import net.desmond.bankingApp.utils.HashingUtil;
 import net.desmond.bankingApp.utils.JwtUtil;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.net.URLEncoder;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @CrossOrigin(origins = {
@@ -32,53 +48,69 @@ import java.util.*;
 @RequestMapping("/bank")
 public class AccountController {
 
-    @Autowired
-    private EmailService emailService;
-
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
+    //token is checked once by JwtAuthenticationFilter, any AuthPrincipal parameter without a valid token ends up here
+    @ExceptionHandler(AuthenticationFailedException.class)
+    public ResponseEntity<String> handleAuthenticationFailed(AuthenticationFailedException ex) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+    }
+
     private AccountService accountService;
     private AccountRepository accountRepository;
     private AccountCredRepository accountCredRepository;
+    private AccountKeyManager accountKeyManager;
+    private BulkOnboardingService bulkOnboardingService;
+    private ExportService exportService;
+    private StatementService statementService;
+    private MonthlyAggregateService monthlyAggregateService;
 
-    public AccountController(AccountService accountService,AccountRepository accountRepository,AccountCredRepository accountCredRepository) {
+    public AccountController(AccountService accountService,AccountRepository accountRepository,AccountCredRepository accountCredRepository,AccountKeyManager accountKeyManager,BulkOnboardingService bulkOnboardingService,ExportService exportService,StatementService statementService,MonthlyAggregateService monthlyAggregateService) {
         this.accountService = accountService;
         this.accountRepository = accountRepository;
         this.accountCredRepository = accountCredRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.bulkOnboardingService = bulkOnboardingService;
+        this.exportService = exportService;
+        this.statementService = statementService;
+        this.monthlyAggregateService = monthlyAggregateService;
     }
 
-    @Value("${BACKEND_URL}")
-    private String backendUrl;
-
     //add account rest api
     @PostMapping
     public ResponseEntity<AccountDto> addAccount(@RequestBody Map<String, Object> requestData) throws Exception {
         return new ResponseEntity<>(accountService.createAccount(requestData), HttpStatus.CREATED);
     }
 
+    //bulk onboarding (admin only), a JSON array of POST /bank bodies. per row results, a failed row does not stop the rest
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkOnboardingReport> addAccounts(AuthPrincipal principal, @RequestBody List<Map<String, Object>> rows) throws Exception {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        return ResponseEntity.ok(bulkOnboardingService.importAccounts(rows));
+    }
+
+    //same as above from a CSV upload with a header row, read as it streams in
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<BulkOnboardingReport> addAccountsFromCsv(AuthPrincipal principal, HttpServletRequest request) throws Exception {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        return ResponseEntity.ok(bulkOnboardingService.importAccounts(new CsvAccountReader(request.getReader())));
+    }
+
     //get account rest api
     @GetMapping("/accounts/{id}")
-    public ResponseEntity<AccountDto> getAccountById(@RequestHeader(value = "Authorization", required = false) String token,
-                                                     @PathVariable Long id) throws Exception {
+    public ResponseEntity<AccountDto> getAccountById(AuthPrincipal principal, @PathVariable Long id) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
-            return ResponseEntity.ok(accountService.getAccountById(targetId));
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+            return ResponseEntity.ok(accountService.getAccountById(principal.accountIdFor(id)));
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(null);
         } catch (Exception e) {
@@ -88,20 +120,9 @@ public class AccountController {
 
     //get account only with jwt
     @GetMapping("/account")
-    public ResponseEntity<AccountDto> getAccountByJwt(@RequestHeader(value = "Authorization", required = false) String token) throws Exception {
+    public ResponseEntity<AccountDto> getAccountByJwt(AuthPrincipal principal) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            Long targetId = JwtUtil.extractUserId(jwt);
-            return ResponseEntity.ok(accountService.getAccountById(targetId));
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+            return ResponseEntity.ok(accountService.getAccountById(principal.id()));
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(null);
         } catch (Exception e) {
@@ -111,23 +132,13 @@ public class AccountController {
 
     //deposit amount rest api
     @PutMapping("/accounts/deposit")
-    public ResponseEntity<AccountDto> depositAmount(@RequestHeader(value = "Authorization", required = false) String token,
-                                                     @RequestBody Map<String, Object> request) throws Exception {
+    public ResponseEntity<AccountDto> depositAmount(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            Long userId = JwtUtil.extractUserId(jwt);
-            double amount = Double.parseDouble(request.get("amount").toString());
-            AccountDto depositedAccount = accountService.depositAmount(userId, amount);
+            long amount = MoneyUtil.parse(request.get("amount").toString());
+            AccountDto depositedAccount = accountService.depositAmount(principal.id(), amount);
             return ResponseEntity.ok(depositedAccount);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(null);
         } catch (Exception e) {
@@ -138,23 +149,13 @@ public class AccountController {
 
     //withdraw amount rest api
     @PutMapping("/accounts/withdraw")
-    public ResponseEntity<AccountDto> withdrawAmount(@RequestHeader(value = "Authorization", required = false) String token,
-                                                     @RequestBody Map<String, Object> request) throws Exception {
+    public ResponseEntity<AccountDto> withdrawAmount(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            Long userId = JwtUtil.extractUserId(jwt);
-            double amount = Double.parseDouble(request.get("amount").toString());
-            AccountDto withdrawedAccount = accountService.withdrawAmount(userId, amount);
+            long amount = MoneyUtil.parse(request.get("amount").toString());
+            AccountDto withdrawedAccount = accountService.withdrawAmount(principal.id(), amount);
             return ResponseEntity.ok(withdrawedAccount);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(null);
         } catch (Exception e) {
@@ -165,25 +166,12 @@ public class AccountController {
 
     //get All accounts rest api
     @GetMapping("/accounts")
-    public ResponseEntity<List<AccountDto>> getAllAccounts(@RequestHeader(value = "Authorization", required = false) String token) {
+    public ResponseEntity<List<AccountDto>> getAllAccounts(AuthPrincipal principal) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null); // Forbidden if not an admin
+        }
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            String role = JwtUtil.extractRole(jwt);
-            if (!"admin".equals(role)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null); // Forbidden if not an admin
-            }
             return ResponseEntity.ok(accountService.getAllAccounts());
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        } catch (ResponseStatusException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(null);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -192,25 +180,13 @@ public class AccountController {
 
     //delete rest api
     @DeleteMapping("/accounts/{id}")
-    public ResponseEntity<String> deleteAccountById(@RequestHeader(value = "Authorization", required = false) String token,
-                                                    @PathVariable Long id) {
+    public ResponseEntity<String> deleteAccountById(AuthPrincipal principal, @PathVariable Long id) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Not an Admin.");
+        }
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            String role = JwtUtil.extractRole(jwt);
-            if (!"admin".equals(role)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Not an Admin.");
-            }
             accountService.deleteAccountById(id);
             return ResponseEntity.ok("Account deleted successfully.");
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -221,23 +197,80 @@ public class AccountController {
 
     //see all transactions
     @GetMapping("/transactions")
-    public ResponseEntity<?> getAllTransactions(@RequestHeader(value = "Authorization", required = false) String token) {
+    public ResponseEntity<?> getAllTransactions(AuthPrincipal principal,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Not an Admin.");
+        }
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
+            //always a page, without a cursor the newest one at the default size
+            return ResponseEntity.ok(accountService.getAllTransactions(cursor, size));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Something went wrong.");
+        }
+    }
 
-            String jwt = token.replace("Bearer ", "");
-            String role = JwtUtil.extractRole(jwt);
-            if (!"admin".equals(role)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Not an Admin.");
-            }
-            return ResponseEntity.ok(accountService.getAllTransactions());
 
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+    //full exports (admin only), ndjson or csv, written while the rows are read
+    @GetMapping("/export/accounts")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(AuthPrincipal principal, @RequestParam(defaultValue = "ndjson") String format) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return export("accounts", exportFormat, out -> exportService.exportAccounts(exportFormat, out));
+    }
+
+    @GetMapping("/export/transactions")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(AuthPrincipal principal, @RequestParam(defaultValue = "ndjson") String format) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return export("transactions", exportFormat, out -> exportService.exportTransactions(exportFormat, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, ExportFormat format, ExportBody body) {
+        StreamingResponseBody stream = out -> {
+            try {
+                body.writeTo(out);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Export of " + name + " failed.", e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.extension() + "\"")
+                .body(stream);
+    }
+
+    private interface ExportBody {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    //monthly statement, month as yyyy-MM
+    @GetMapping("/statements/{id}")
+    public ResponseEntity<?> getStatement(AuthPrincipal principal, @PathVariable Long id,
+            @RequestParam String month,
+            @RequestParam(defaultValue = "pdf") String format) {
+        try {
+            Long accountId = principal.accountIdFor(id);
+            YearMonth statementMonth = YearMonth.parse(month);
+            StatementFormat statementFormat = StatementFormat.of(format);
+            byte[] statement = statementService.statement(accountId, statementMonth, statementFormat);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(statementFormat.contentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + accountId + "-" + statementMonth + "." + statementFormat.extension() + "\"")
+                    .body(statement);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Month must be in yyyy-MM format.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -245,29 +278,40 @@ public class AccountController {
         }
     }
 
+    //money in/out and counts by status per month, yyyy-MM, the last twelve months by default
+    @GetMapping("/insights/{id}")
+    public ResponseEntity<?> getInsights(AuthPrincipal principal, @PathVariable Long id,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            YearMonth toMonth = to == null ? YearMonth.now() : YearMonth.parse(to);
+            YearMonth fromMonth = from == null ? toMonth.minusMonths(11) : YearMonth.parse(from);
+            return ResponseEntity.ok(monthlyAggregateService.insights(principal.accountIdFor(id), fromMonth, toMonth));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Month must be in yyyy-MM format.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Something went wrong.");
+        }
+    }
 
     //see all trans user
     @GetMapping("/transactions/{id}")
     public ResponseEntity<?> getAllTransactionsId(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getAllTransactionsId(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getAllTransactionsId(targetId));
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -279,25 +323,17 @@ public class AccountController {
     //see all sent
     @GetMapping("/transactions/{id}/sent")
     public ResponseEntity<?> getAllTransactionsSent(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getAllTransactionsSent(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getAllTransactionsSent(targetId));
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -309,25 +345,35 @@ public class AccountController {
     //see all received
     @GetMapping("/transactions/{id}/received")
     public ResponseEntity<?> getAllTransactionsReceived(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getAllTransactionsReceived(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getAllTransactionsReceived(targetId));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Something went wrong.");
+        }
+    }
 
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+    //filtered history, filters are applied in the query so only matching rows get decrypted
+    @GetMapping("/transactions/{id}/search")
+    public ResponseEntity<?> searchTransactions(
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @ModelAttribute TransactionFilter filter,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
+
+        try {
+            return ResponseEntity.ok(accountService.searchTransactions(principal.accountIdFor(id), filter, cursor, size));
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -336,25 +382,15 @@ public class AccountController {
     }
 
     @PutMapping("/accounts/sendTo")
-    public ResponseEntity<?> sendToAccount(@RequestHeader(value = "Authorization", required = false) String token,
-                                           @RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> sendToAccount(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            Long senderId = JwtUtil.extractUserId(jwt);
             Long receiverId = Long.valueOf(request.get("receiverId").toString());
-            double amount = Double.parseDouble(request.get("amount").toString());
+            long amount = MoneyUtil.parse(request.get("amount").toString());
 
-            AccountDto senderAccount = accountService.sendToAccount(senderId, receiverId, amount);
+            AccountDto senderAccount = accountService.sendToAccount(principal.id(), receiverId, amount);
             return ResponseEntity.ok(senderAccount);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -362,30 +398,47 @@ public class AccountController {
         }
     }
 
-    // requestFrom
-    @PutMapping("/accounts/requestFrom")
-    public ResponseEntity<?> requestFromAccount(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @RequestBody Map<String, Object> request) {
-
+    //batch payout, {"mode": "atomic" | "best-effort", "transfers": [{"receiverId": 2, "amount": "10.00"}, ...]}. atomic is the default
+    @PutMapping("/accounts/sendToMany")
+    public ResponseEntity<?> sendToManyAccounts(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            String mode = String.valueOf(request.getOrDefault("mode", "atomic"));
+            if (!mode.equals("atomic") && !mode.equals("best-effort")) {
+                throw new IllegalArgumentException("Mode must be atomic or best-effort.");
+            }
+            if (!(request.get("transfers") instanceof List<?> transfers)) {
+                throw new IllegalArgumentException("No transfers given.");
             }
 
-            String jwt = token.replace("Bearer ", "");
-            Long receiverId = JwtUtil.extractUserId(jwt);
+            List<BatchTransferLeg> legs = new ArrayList<>(transfers.size());
+            for (Object transfer : transfers) {
+                if (!(transfer instanceof Map<?, ?> leg) || leg.get("receiverId") == null || leg.get("amount") == null) {
+                    throw new IllegalArgumentException("Every transfer needs a receiverId and an amount.");
+                }
+                legs.add(new BatchTransferLeg(Long.valueOf(leg.get("receiverId").toString()), MoneyUtil.parse(leg.get("amount").toString())));
+            }
 
+            return ResponseEntity.ok(accountService.sendToMany(principal.id(), legs, mode.equals("atomic")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Something went wrong.");
+        }
+    }
+
+    // requestFrom
+    @PutMapping("/accounts/requestFrom")
+    public ResponseEntity<?> requestFromAccount(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
+        try {
             Long senderId = Long.valueOf(request.get("senderId").toString());
-            double amount = Double.parseDouble(request.get("amount").toString());
+            long amount = MoneyUtil.parse(request.get("amount").toString());
 
-            accountService.requestFromAccount(receiverId, senderId, amount);
+            accountService.requestFromAccount(principal.id(), senderId, amount);
             return ResponseEntity.ok("Transaction is pending.");
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -397,26 +450,15 @@ public class AccountController {
     //show all pending
     @GetMapping("/transactions/pending")
     public ResponseEntity<?> getAllPendingTransactions(
-            @RequestHeader(value = "Authorization", required = false) String token) {
+            AuthPrincipal principal,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Only admins can view all pending transactions.");
+        }
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-            String role = JwtUtil.extractRole(jwt);
-
-            if (!"admin".equals(role)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Only admins can view all pending transactions.");
-            }
-
-            List<TransactionDto> transactions = accountService.getAllPendingTransactions();
-            return ResponseEntity.ok(transactions);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+            //always a page, without a cursor the newest one at the default size
+            return ResponseEntity.ok(accountService.getAllPendingTransactions(cursor, size));
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -428,21 +470,17 @@ public class AccountController {
     //show all pending for a user
     @GetMapping("/transactions/pending/{id}")
     public ResponseEntity<?> getUserPendingTransactions(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getUserPendingTransactions(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getUserPendingTransactions(targetId));
-
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -453,21 +491,17 @@ public class AccountController {
     //show pending to be sent by user
     @GetMapping("/transactions/pending/{id}/sent")
     public ResponseEntity<?> getPendingSentTransactions(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getPendingSentTransactions(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getPendingSentTransactions(targetId));
-
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -479,21 +513,17 @@ public class AccountController {
     //show pending to be received by user
     @GetMapping("/transactions/pending/{id}/received")
     public ResponseEntity<?> getPendingReceivedTransactions(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @PathVariable Long id) {
+            AuthPrincipal principal,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer size) {
 
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
+            Long targetId = principal.accountIdFor(id);
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(accountService.getPendingReceivedTransactions(targetId, cursor, size));
             }
-
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
-            String role = JwtUtil.extractRole(jwt);
-
-            Long targetId = "user".equals(role) ? jwtUserId : id;
             return ResponseEntity.ok(accountService.getPendingReceivedTransactions(targetId));
-
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -501,28 +531,15 @@ public class AccountController {
         }
     }
 
-    //execute pending
+    //execute pending, principal only makes sure the caller is logged in
     @PutMapping("/transactions/pending/execute")
-    public ResponseEntity<?> executePendingTransaction(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @RequestBody Map<String, Object> request) {
-
+    public ResponseEntity<?> executePendingTransaction(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
             Long transId = Long.valueOf(request.get("transId").toString());
-            String jwt = token.replace("Bearer ", "");
-            JwtUtil.extractUserId(jwt); // this will throw exception if JWT is invalid
-
             AccountDto result = accountService.executePendingTransaction(transId);
             return ResponseEntity.ok(result);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -532,26 +549,13 @@ public class AccountController {
 
     //decline request
     @PutMapping("/transactions/pending/decline")
-    public ResponseEntity<?> declinePendingTransaction(
-            @RequestHeader(value = "Authorization", required = false) String token,
-            @RequestBody Map<String, Object> request) {
-
+    public ResponseEntity<?> declinePendingTransaction(AuthPrincipal principal, @RequestBody Map<String, Object> request) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
             Long transId = Long.valueOf(request.get("transId").toString());
-            String jwt = token.replace("Bearer ", "");
-            JwtUtil.extractUserId(jwt); //exception if invalid
-
             AccountDto result = accountService.declinePendingTransaction(transId);
             return ResponseEntity.ok(result);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -573,13 +577,13 @@ public class AccountController {
         if (accountService.matchPassword(id, password)) {
             Account account = accountRepository.findById(id)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
-            Account decrypted = Mapper.mapToDecryptedAccount(account,accountCredRepository);
+            LazyAccount lazy = Mapper.mapToLazyAccount(account,accountKeyManager);
 
-            if (!decrypted.getVerificationStatus().equalsIgnoreCase("verified")) {
+            if (!lazy.getVerificationStatus().equalsIgnoreCase("verified")) {
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Account is not verified yet.");
             }
 
-            String token = JwtUtil.generateToken(id, decrypted.getRole());
+            String token = JwtUtil.generateToken(id, lazy.getRole());
             Map<String, String> response = new HashMap<>();
             response.put("token", token);
             return ResponseEntity.ok(response);
@@ -599,22 +603,10 @@ public class AccountController {
     }
 
     @DeleteMapping("/transaction/{transId}")
-    public ResponseEntity<String> deleteTransactionById(@RequestHeader(value = "Authorization", required = false) String token,
-                                                    @PathVariable Long transId) {
+    public ResponseEntity<String> deleteTransactionById(AuthPrincipal principal, @PathVariable Long transId) {
         try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.replace("Bearer ", "");
-
             accountService.deleteTransactionById(transId);
             return ResponseEntity.ok("Transaction deleted successfully.");
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
@@ -629,11 +621,9 @@ public class AccountController {
     }
 
     @PostMapping("/change-address")
-    public ResponseEntity<?> changeAddress(@RequestHeader("Authorization") String token,
-                                           @RequestBody Map<String, String> body) {
+    public ResponseEntity<?> changeAddress(AuthPrincipal principal, @RequestBody Map<String, String> body) {
         try {
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
+            Long jwtUserId = principal.id();
             String newAddress = body.get("address");
 
             if (newAddress == null || newAddress.trim().isEmpty()) {
@@ -642,10 +632,10 @@ public class AccountController {
 
             Account account = accountRepository.findById(jwtUserId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
-            Account decrypted = Mapper.mapToDecryptedAccount(account,accountCredRepository);
+            LazyAccount lazy = Mapper.mapToLazyAccount(account,accountKeyManager);
 
-            decrypted.setAccountHolderAddress(newAddress);
-            accountRepository.save(Mapper.mapToEncryptedAccount(decrypted,accountCredRepository));
+            lazy.setAccountHolderAddress(newAddress);
+            accountRepository.save(lazy.writeBack());
 
             return ResponseEntity.ok(Map.of("message", "Address updated successfully."));
         } catch (Exception e) {
@@ -655,11 +645,9 @@ public class AccountController {
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<?> changePassword(@RequestHeader("Authorization") String token,
-                                            @RequestBody Map<String, String> body) {
+    public ResponseEntity<?> changePassword(AuthPrincipal principal, @RequestBody Map<String, String> body) {
         try {
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
+            Long jwtUserId = principal.id();
             String currentPassword = body.get("currentPassword");
             String newPassword = body.get("newPassword");
 
@@ -688,11 +676,9 @@ public class AccountController {
     }
 
     @PostMapping("/change-email")
-    public ResponseEntity<?> changeEmail(@RequestHeader("Authorization") String token,
-                                         @RequestBody Map<String, String> body) {
+    public ResponseEntity<?> changeEmail(AuthPrincipal principal, @RequestBody Map<String, String> body) {
         try {
-            String jwt = token.replace("Bearer ", "");
-            Long jwtUserId = JwtUtil.extractUserId(jwt);
+            Long jwtUserId = principal.id();
             String newEmail = body.get("email");
 
             if (newEmail == null || newEmail.trim().isEmpty()) {
@@ -720,25 +706,7 @@ public class AccountController {
             }
 
             // Proceed with email update and verification
-            Account account = accountRepository.findById(jwtUserId)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
-
-            Account decrypted = Mapper.mapToDecryptedAccount(account, accountCredRepository);
-            decrypted.setAccountHolderEmailAddress(newEmail);
-
-            String verificationToken = UUID.randomUUID().toString();
-            decrypted.setVerificationStatus(verificationToken); // unverified
-
-            String link = backendUrl+"/bank/verify?id=" +decrypted.getAccountId()
-                    + "&token=" + URLEncoder.encode(verificationToken, StandardCharsets.UTF_8);
-
-            emailService.sendVerificationEmail(
-                    newEmail,
-                    "Silverstone: Email Verification",
-                    "\nClick this link to verify your email: " + link + "\n\nFrom Silverstone Support Team"
-            );
-
-            accountRepository.save(Mapper.mapToEncryptedAccount(decrypted, accountCredRepository));
+            accountService.changeEmail(jwtUserId, newEmail);
 
             return ResponseEntity.ok(Map.of("message", "Verification mail has been sent to the new Email address. Please verify to activate it."));
         } catch (Exception e) {
@@ -749,32 +717,11 @@ public class AccountController {
     }
 
     @GetMapping("/is-admin")
-    public ResponseEntity<?> isAdmin(
-            @RequestHeader(value = "Authorization",required = false) String token) {
-        try {
-            if (token == null || !token.startsWith("Bearer ")) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or malformed token.");
-            }
-
-            String jwt = token.substring(7);
-            String role = JwtUtil.extractRole(jwt);
-
-            if (!"admin".equals(role)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Only admins can view all pending transactions.");
-            }
-
-            return ResponseEntity.ok(true);
-
-        } catch (ExpiredJwtException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Session expired. Please login again.");
-        } catch (JwtException | IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token. Please login again.");
-        } catch (ResponseStatusException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Something went wrong.");
+    public ResponseEntity<?> isAdmin(AuthPrincipal principal) {
+        if (!principal.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied: Only admins can view all pending transactions.");
         }
+        return ResponseEntity.ok(true);
     }
 
 }
-
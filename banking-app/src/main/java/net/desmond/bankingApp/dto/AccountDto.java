@@ -1,5 +1,8 @@
 package net.desmond.bankingApp.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import net.desmond.bankingApp.utils.MinorUnitsSerializer;
+
 import lombok.*;
 
 @Data
@@ -9,14 +12,15 @@ public class AccountDto {
 
     private Long accountId;
     private String accountHolderName;
-    private double balance;
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private long balance; //minor units
     private String accountHolderAddress;
     private String accountHolderEmailAddress;
 
     public AccountDto() {
     }
 
-    public AccountDto(Long accountId, String accountHolderName, double balance, String accountHolderAddress, String accountHolderEmailAddress) {
+    public AccountDto(Long accountId, String accountHolderName, long balance, String accountHolderAddress, String accountHolderEmailAddress) {
         this.accountId = accountId;
         this.accountHolderName = accountHolderName;
         this.balance = balance;
@@ -40,11 +44,11 @@ public class AccountDto {
         this.accountHolderName = accountHolderName;
     }
 
-    public double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
 
@@ -3,22 +3,36 @@ package net.desmond.bankingApp.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 @SuppressWarnings({"LombokSetterMayBeUsed", "LombokGetterMayBeUsed"})
 @Getter
 @Setter
-@Table(name="accounts")
+@Table(name="accounts", indexes = {
+        @Index(name = "idx_accounts_email_blind_index", columnList = "email_blind_index", unique = true)
+})
 @Entity
+//updates only carry the columns that changed, see LazyAccount
+@DynamicUpdate
 public class Account {
+    public static final String ID_SEQUENCE = "accounts_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    //pooled sequence instead of IDENTITY so ids are known before the insert and JDBC batching stays on,
+    //AccountIdSequenceBump moves it past ids handed out while the column was still auto increment
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_id")
+    @SequenceGenerator(name = "account_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long accountId;
 
     @Column(name = "account_holder_name")
     private String accountHolderName;
 
     @Column(name = "account_balance")
-    private String balance;
+    private String balance; //encrypted MoneyUtil.encode of balanceMinor. opening balance only, the current one is derived by LedgerService
+
+    @Transient
+    private long balanceMinor;
 
     @Column(name = "account_holder_address")
     private String accountHolderAddress;
@@ -38,12 +52,15 @@ public class Account {
     @Column(name = "verification_status")
     private String verificationStatus;
 
+    @Column(name = "email_blind_index", length = 64)
+    private String emailBlindIndex;
+
     public Account() {}
 
-    public Account(Long accountId, String accountHolderName, String balance, String accountHolderAddress, String accountHolderEmailAddress) {
+    public Account(Long accountId, String accountHolderName, long balanceMinor, String accountHolderAddress, String accountHolderEmailAddress) {
         this.accountId = accountId;
         this.accountHolderName = accountHolderName;
-        this.balance = balance;
+        this.balanceMinor = balanceMinor;
         this.accountHolderAddress = accountHolderAddress;
         this.accountHolderEmailAddress = accountHolderEmailAddress;
     }
@@ -54,6 +71,7 @@ public class Account {
         this.accountHolderName=account.getAccountHolderName();
         this.accountHolderEmailAddress=account.getAccountHolderEmailAddress();
         this.balance=account.getBalance();
+        this.balanceMinor=account.getBalanceMinor();
     }
 
     public String getVerificationStatus() {
@@ -88,6 +106,14 @@ public class Account {
         this.balance = balance;
     }
 
+    public long getBalanceMinor() {
+        return balanceMinor;
+    }
+
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
+    }
+
     public String getAccountHolderAddress() {
         return accountHolderAddress;
     }
@@ -127,4 +153,12 @@ public class Account {
     public void setRole(String role) {
         this.role = role;
     }
+
+    public String getEmailBlindIndex() {
+        return emailBlindIndex;
+    }
+
+    public void setEmailBlindIndex(String emailBlindIndex) {
+        this.emailBlindIndex = emailBlindIndex;
+    }
 }
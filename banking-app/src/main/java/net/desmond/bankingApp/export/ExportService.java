@@ -0,0 +1,154 @@
+package net.desmond.bankingApp.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import net.desmond.bankingApp.dto.AccountDto;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.ledger.LedgerService;
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.transactions.TransactionDto;
+import net.desmond.bankingApp.transactions.TransactionRepository;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//admin exports written straight to the response. rows come off a database cursor (the repositories set the fetch size),
+//every chunk-size rows are decrypted, written, flushed and then cleared from the persistence context, so heap use
+//stays the same however many rows there are. on MySQL the datasource url needs useCursorFetch=true for the fetch size
+//to be honoured, the account export also reads the ledger while its cursor is open
+@Service
+public class ExportService {
+
+    private static final String[] ACCOUNT_HEADER = {"accountId", "accountHolderName", "balance", "accountHolderAddress", "accountHolderEmailAddress"};
+    private static final String[] TRANSACTION_HEADER = {"transId", "senderId", "receiverId", "amount", "status", "timestamp"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerService ledgerService;
+    private final AccountKeyManager accountKeyManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+    private final Counter exportedAccounts;
+    private final Counter exportedTransactions;
+
+    private final int chunkSize;
+
+    public ExportService(AccountRepository accountRepository,
+                         TransactionRepository transactionRepository,
+                         LedgerService ledgerService,
+                         AccountKeyManager accountKeyManager,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${bank.export.chunk-size:500}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerService = ledgerService;
+        this.accountKeyManager = accountKeyManager;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.exportedAccounts = rowCounter(meterRegistry, "accounts");
+        this.exportedTransactions = rowCounter(meterRegistry, "transactions");
+        this.chunkSize = chunkSize;
+    }
+
+    public void exportAccounts(ExportFormat format, OutputStream out) throws Exception {
+        Function<AccountDto, String[]> csvFields = account -> new String[]{String.valueOf(account.getAccountId()),
+                account.getAccountHolderName(), MoneyUtil.format(account.getBalance()), account.getAccountHolderAddress(),
+                account.getAccountHolderEmailAddress()};
+        export(format, out, ACCOUNT_HEADER, csvFields, accountRepository::streamAll, chunk -> {
+            Map<Long, Long> balances = ledgerService.balances(chunk);
+            List<AccountDto> accountDtos = new ArrayList<>(chunk.size());
+            for (Account account : chunk) {
+                accountDtos.add(Mapper.mapToAccountDto(account, balances.get(account.getAccountId()), accountKeyManager));
+            }
+            exportedAccounts.increment(chunk.size());
+            return accountDtos;
+        });
+    }
+
+    public void exportTransactions(ExportFormat format, OutputStream out) throws Exception {
+        Function<TransactionDto, String[]> csvFields = transaction -> new String[]{String.valueOf(transaction.getTransId()),
+                String.valueOf(transaction.getSenderId()), String.valueOf(transaction.getReceiverId()),
+                MoneyUtil.format(transaction.getAmount()), transaction.getStatus(), transaction.getTimestamp()};
+        export(format, out, TRANSACTION_HEADER, csvFields, transactionRepository::streamAll, chunk -> {
+            exportedTransactions.increment(chunk.size());
+            return Mapper.mapToDecryptedTransactionDtos(chunk, accountKeyManager);
+        });
+    }
+
+    //NDJSON lines are the same JSON the list endpoints return
+    private <E, D> void export(ExportFormat format, OutputStream out, String[] header, Function<D, String[]> csvFields,
+                               Supplier<Stream<E>> source, ChunkMapper<E, D> mapper) throws Exception {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csv = new CsvWriter(writer);
+        if (format == ExportFormat.CSV) {
+            csv.writeRecord(header);
+        }
+
+        Exception failure = readOnly.execute(status -> {
+            try (Stream<E> stream = source.get()) {
+                Iterator<E> iterator = stream.iterator();
+                List<E> chunk = new ArrayList<>(chunkSize);
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                        for (D row : mapper.map(chunk)) {
+                            if (format == ExportFormat.CSV) {
+                                csv.writeRecord(csvFields.apply(row));
+                            } else {
+                                writer.write(objectMapper.writeValueAsString(row));
+                                writer.write('\n');
+                            }
+                        }
+                        writer.flush();
+                        chunk.clear();
+                        entityManager.clear();
+                    }
+                }
+                return null;
+            } catch (Exception e) {
+                return e;
+            }
+        });
+        if (failure != null) {
+            throw failure;
+        }
+        writer.flush();
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("bank.export.rows")
+                .description("Rows written by the streaming exports")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private interface ChunkMapper<E, D> {
+        List<D> map(List<E> chunk) throws Exception;
+    }
+}
@@ -0,0 +1,136 @@
+package net.desmond.bankingApp.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.desmond.bankingApp.security.AuthPrincipal;
+import net.desmond.bankingApp.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+//PUT/POST on the money moving endpoints may carry an Idempotency-Key. the first request with a key runs and its
+//response is kept, a repeat with the same body gets that response back (Idempotent-Replayed: true) without running
+//again. runs after JwtAuthenticationFilter, keys are per caller; without a valid token the request goes on to its 401
+@Component
+@Order(IdempotencyFilter.ORDER)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final int ORDER = JwtAuthenticationFilter.ORDER + 20;
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyService idempotencyService;
+    private final Set<String> paths;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             @Value("${bank.idempotency.paths:/bank/accounts/sendTo,/bank/accounts/sendToMany,/bank/accounts/deposit,/bank/accounts/withdraw,/bank/transactions/pending/execute}") List<String> paths) {
+        this.idempotencyService = idempotencyService;
+        this.paths = Set.copyOf(paths);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("PUT".equals(method) || "POST".equals(method))
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AuthPrincipal principal = (AuthPrincipal) request.getAttribute(JwtAuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+        if (principal == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + IdempotencyService.MAX_KEY_LENGTH + " characters.");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String requestHash = hash(request, body);
+
+        IdempotencyService.Begin begin;
+        try {
+            begin = idempotencyService.begin(principal.id(), key, requestHash);
+        } catch (Exception e) {
+            reject(response, HttpStatus.INTERNAL_SERVER_ERROR, "Something went wrong.");
+            return;
+        }
+
+        switch (begin.result()) {
+            case REPLAY -> replay(response, begin.response());
+            case IN_PROGRESS -> reject(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress.");
+            case MISMATCH -> reject(response, HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request.");
+            case STARTED -> run(request, response, filterChain, principal.id(), key, requestHash, body);
+        }
+    }
+
+    private void run(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                     Long ownerId, String key, String requestHash, byte[] body) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapped = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), wrapped);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.release(ownerId, key);
+            throw e;
+        }
+        try {
+            idempotencyService.complete(ownerId, key, new StoredResponse(requestHash, wrapped.getStatus(),
+                    wrapped.getContentType(), wrapped.getContentAsByteArray()));
+        } catch (Exception e) {
+            //the work is done, the response still goes out. a repeat finds the key released or in progress
+            logger.warn("Could not store the response for an idempotency key", e);
+            idempotencyService.release(ownerId, key);
+        }
+        wrapped.copyBodyToResponse();
+    }
+
+    private static void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.statusCode());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    //plain string bodies, as the controller's own error responses
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static String hash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString() + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
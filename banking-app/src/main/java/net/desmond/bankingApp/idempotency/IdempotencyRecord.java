@@ -0,0 +1,58 @@
+package net.desmond.bankingApp.idempotency;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+//one Idempotency-Key of one caller. statusCode is null while the first request is still running, its instance
+//moves heartbeatAt forward until then. afterwards the response is kept (body encrypted with the caller's key, it is account data) until IdempotencyService purges it
+@Getter
+@Setter
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_keys_owner_key", columnNames = {"owner_id", "idem_key"})
+}, indexes = {
+        @Index(name = "idx_idempotency_keys_created", columnList = "created_at")
+})
+@Entity
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "idem_key", nullable = false, length = IdempotencyService.MAX_KEY_LENGTH)
+    private String key;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "body", columnDefinition = "LONGTEXT")
+    private String body; //encrypted
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(Long ownerId, String key, String requestHash) {
+        this.ownerId = ownerId;
+        this.key = key;
+        this.requestHash = requestHash;
+        this.createdAt = Instant.now();
+        this.heartbeatAt = createdAt;
+    }
+}
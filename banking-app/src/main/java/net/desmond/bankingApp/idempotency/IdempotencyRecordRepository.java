@@ -0,0 +1,51 @@
+package net.desmond.bankingApp.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByOwnerIdAndKey(Long ownerId, String key);
+
+    //a reservation whose instance stopped renewing it (crashed) may be taken over once its heartbeat is older than the
+    //lease. rows reserved before heartbeat_at existed go by createdAt
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.createdAt = :now, r.heartbeatAt = :now, r.requestHash = :requestHash "
+            + "WHERE r.id = :id AND r.statusCode IS NULL AND COALESCE(r.heartbeatAt, r.createdAt) < :staleBefore")
+    int takeOver(@Param("id") Long id, @Param("requestHash") String requestHash, @Param("now") Instant now, @Param("staleBefore") Instant staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.heartbeatAt = :now WHERE r.id IN :ids AND r.statusCode IS NULL")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.contentType = :contentType, r.body = :body "
+            + "WHERE r.ownerId = :ownerId AND r.key = :key")
+    int complete(@Param("ownerId") Long ownerId, @Param("key") String key, @Param("statusCode") int statusCode,
+                 @Param("contentType") String contentType, @Param("body") String body);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.ownerId = :ownerId AND r.key = :key AND r.statusCode IS NULL")
+    int release(@Param("ownerId") Long ownerId, @Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int purgeOlderThan(@Param("before") Instant before);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.ownerId = :ownerId")
+    int deleteOwner(@Param("ownerId") Long ownerId);
+}
@@ -0,0 +1,210 @@
+package net.desmond.bankingApp.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//remembers the response of every keyed request for ttl. a repeat is answered from the in-memory cache, or from
+//idempotency_keys when the cache no longer has it (or another instance served the first request). the row is
+//reserved before the request runs, so a concurrent repeat sees it in progress instead of running a second time.
+//the reserving instance renews the row while the request runs, only a row nobody renewed for lease is taken over
+@Service
+@Lazy(false)
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    public enum Result { STARTED, REPLAY, IN_PROGRESS, MISMATCH }
+
+    public record Begin(Result result, StoredResponse response) {
+    }
+
+    private record CacheKey(Long ownerId, String key) {
+    }
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final AccountRepository accountRepository;
+    private final AccountKeyManager accountKeyManager;
+    private final Cache<CacheKey, StoredResponse> responses;
+    private final Map<CacheKey, Long> running = new ConcurrentHashMap<>(); //reservations of this instance, by row id
+    private final ScheduledExecutorService heartbeats;
+    private final Counter started;
+    private final Counter replayed;
+    private final Counter inProgress;
+    private final Counter mismatched;
+
+    private final Duration ttl;
+    private final Duration lease;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              AccountRepository accountRepository,
+                              AccountKeyManager accountKeyManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${bank.idempotency.cache.max-size:10000}") long maxSize,
+                              @Value("${bank.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${bank.idempotency.lease:1m}") Duration lease,
+                              @Value("${bank.idempotency.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.accountRepository = accountRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotencyResponses");
+        this.started = requestCounter(meterRegistry, "started");
+        this.replayed = requestCounter(meterRegistry, "replayed");
+        this.inProgress = requestCounter(meterRegistry, "in_progress");
+        this.mismatched = requestCounter(meterRegistry, "mismatch");
+        this.ttl = ttl;
+        this.lease = lease;
+        //well inside lease, a request outliving one interval still looks alive to other instances
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Begin begin(Long ownerId, String key, String requestHash) throws Exception {
+        StoredResponse cached = responses.getIfPresent(new CacheKey(ownerId, key));
+        if (cached != null) {
+            return repeat(cached, requestHash);
+        }
+
+        //looked up first, a routine retry must not go through a unique constraint violation
+        IdempotencyRecord existing = idempotencyRecordRepository.findByOwnerIdAndKey(ownerId, key).orElse(null);
+        if (existing == null) {
+            try {
+                IdempotencyRecord reserved = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(ownerId, key, requestHash));
+                running.put(new CacheKey(ownerId, key), reserved.getId());
+                started.increment();
+                return new Begin(Result.STARTED, null);
+            } catch (DataIntegrityViolationException e) {
+                //a concurrent attempt with the same key reserved it first
+            }
+            existing = idempotencyRecordRepository.findByOwnerIdAndKey(ownerId, key).orElse(null);
+            if (existing == null) {
+                //purged in between
+                return begin(ownerId, key, requestHash);
+            }
+        }
+        if (existing.getStatusCode() == null) {
+            Instant now = Instant.now();
+            if (idempotencyRecordRepository.takeOver(existing.getId(), requestHash, now, now.minus(lease)) == 1) {
+                running.put(new CacheKey(ownerId, key), existing.getId());
+                started.increment();
+                return new Begin(Result.STARTED, null);
+            }
+            inProgress.increment();
+            return new Begin(Result.IN_PROGRESS, null);
+        }
+
+        StoredResponse stored = new StoredResponse(existing.getRequestHash(), existing.getStatusCode(), existing.getContentType(),
+                existing.getBody() == null ? new byte[0] : EncryptionUtil.decryptBytesWithAES(existing.getBody(), ownerKey(ownerId)));
+        responses.put(new CacheKey(ownerId, key), stored);
+        return repeat(stored, requestHash);
+    }
+
+    //server errors are not kept, the work was rolled back and the client may retry with the same key. this runs
+    //after the transfer committed, not in its transaction: a crash in between leaves the key reserved and
+    //unrenewed, so a retry after the lease runs the transfer again
+    public void complete(Long ownerId, String key, StoredResponse response) throws Exception {
+        if (response.statusCode() >= 500) {
+            release(ownerId, key);
+            return;
+        }
+        SecretKey aesKey = ownerKey(ownerId);
+        if (aesKey == null) {
+            release(ownerId, key);
+            return;
+        }
+        idempotencyRecordRepository.complete(ownerId, key, response.statusCode(), response.contentType(),
+                response.body().length == 0 ? null : EncryptionUtil.encryptBytesWithAES(response.body(), aesKey));
+        running.remove(new CacheKey(ownerId, key));
+        responses.put(new CacheKey(ownerId, key), response);
+    }
+
+    public void release(Long ownerId, String key) {
+        running.remove(new CacheKey(ownerId, key));
+        idempotencyRecordRepository.release(ownerId, key);
+    }
+
+    //the stored responses are the deleted account's data
+    public void forgetOwner(Long ownerId) {
+        running.keySet().removeIf(cacheKey -> cacheKey.ownerId().equals(ownerId));
+        responses.asMap().keySet().removeIf(cacheKey -> cacheKey.ownerId().equals(ownerId));
+        idempotencyRecordRepository.deleteOwner(ownerId);
+    }
+
+    //runs on its own thread, a mail dispatch or compaction holding the shared scheduler must not let a lease lapse
+    public void heartbeat() {
+        try {
+            if (!running.isEmpty()) {
+                idempotencyRecordRepository.heartbeat(List.copyOf(running.values()), Instant.now());
+            }
+        } catch (RuntimeException e) {
+            //a failed run would cancel the schedule, the next one tries again
+            log.warn("Could not renew {} idempotency reservations", running.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval:1h}", initialDelayString = "${bank.idempotency.purge-interval:1h}")
+    public void purge() {
+        idempotencyRecordRepository.purgeOlderThan(Instant.now().minus(ttl));
+    }
+
+    private Begin repeat(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            mismatched.increment();
+            return new Begin(Result.MISMATCH, null);
+        }
+        replayed.increment();
+        return new Begin(Result.REPLAY, stored);
+    }
+
+    private SecretKey ownerKey(Long ownerId) throws Exception {
+        Account owner = accountRepository.findById(ownerId).orElse(null);
+        return owner == null ? null : accountKeyManager.getAesKey(ownerId, owner.getAesEncryptedKey());
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
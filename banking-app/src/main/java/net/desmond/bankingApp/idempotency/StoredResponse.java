@@ -0,0 +1,5 @@
+package net.desmond.bankingApp.idempotency;
+
+//a finished response as replayed for a repeated key
+public record StoredResponse(String requestHash, int statusCode, String contentType, byte[] body) {
+}
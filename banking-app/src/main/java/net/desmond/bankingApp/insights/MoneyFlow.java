@@ -0,0 +1,17 @@
+package net.desmond.bankingApp.insights;
+
+//what a transaction_history row moved from one account's side. only deposits, withdrawals and successful transfers
+//move money, pending, failed and declined rows are zero both ways
+public record MoneyFlow(long in, long out) {
+
+    private static final MoneyFlow NONE = new MoneyFlow(0, 0);
+
+    public static MoneyFlow of(Long accountId, Long senderId, String status, long amount) {
+        return switch (status) {
+            case "deposit" -> new MoneyFlow(amount, 0);
+            case "withdraw" -> new MoneyFlow(0, amount);
+            case "success" -> accountId.equals(senderId) ? new MoneyFlow(0, amount) : new MoneyFlow(amount, 0);
+            default -> NONE;
+        };
+    }
+}
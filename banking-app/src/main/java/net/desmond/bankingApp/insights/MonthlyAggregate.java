@@ -0,0 +1,41 @@
+package net.desmond.bankingApp.insights;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+//running totals of one account's transaction_history rows of one month and status, kept up to date in the same
+//transaction as every insert and delete (MonthlyAggregateService). amounts are encrypted with the account's key,
+//null means nothing has moved yet
+@Getter
+@Setter
+@Table(name = "monthly_aggregates", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_monthly_aggregates_account_month_status", columnNames = {"account_id", "aggregate_month", "status"})
+})
+@Entity
+public class MonthlyAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "aggregate_month", nullable = false, length = 7)
+    private String month; //yyyy-MM
+
+    @Column(name = "status", nullable = false, length = 32)
+    private String status;
+
+    @Column(name = "txn_count", nullable = false)
+    private int count;
+
+    @Column(name = "money_in")
+    private String moneyIn; //encrypted MoneyUtil.encode
+
+    @Column(name = "money_out")
+    private String moneyOut; //encrypted MoneyUtil.encode
+
+    public MonthlyAggregate() {}
+}
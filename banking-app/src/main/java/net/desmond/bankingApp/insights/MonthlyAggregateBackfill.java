@@ -0,0 +1,119 @@
+package net.desmond.bankingApp.insights;
+
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.transactions.Transaction;
+import net.desmond.bankingApp.transactions.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//history written before monthly_aggregates existed is aggregated once at startup, a page per transaction. the newest
+//row is fixed in MonthlyAggregateBackfillState before requests are served, anything later is recorded live. progress
+//is kept with every page, a failure stops startup and the next start resumes after the last page that committed
+@Component
+@Lazy(false)
+public class MonthlyAggregateBackfill implements SmartInitializingSingleton, ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MonthlyAggregateBackfill.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final MonthlyAggregateRepository monthlyAggregateRepository;
+    private final MonthlyAggregateBackfillStateRepository stateRepository;
+    private final MonthlyAggregateService monthlyAggregateService;
+    private final AccountKeyManager accountKeyManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public MonthlyAggregateBackfill(TransactionRepository transactionRepository,
+                                    AccountRepository accountRepository,
+                                    MonthlyAggregateRepository monthlyAggregateRepository,
+                                    MonthlyAggregateBackfillStateRepository stateRepository,
+                                    MonthlyAggregateService monthlyAggregateService,
+                                    AccountKeyManager accountKeyManager,
+                                    PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.monthlyAggregateRepository = monthlyAggregateRepository;
+        this.stateRepository = stateRepository;
+        this.monthlyAggregateService = monthlyAggregateService;
+        this.accountKeyManager = accountKeyManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //runs before the web server starts, no live transfer can land between reading the newest id and saving it
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (stateRepository.existsById(MonthlyAggregateBackfillState.ID)) {
+            return;
+        }
+        Long newest = transactionRepository.findMaxTransId();
+        long upTo = newest == null ? 0 : newest;
+        //aggregates without a state row were filled by a backfill that did not keep its progress yet
+        long doneThrough = monthlyAggregateRepository.count() > 0 ? upTo : 0;
+        try {
+            stateRepository.insert(MonthlyAggregateBackfillState.ID, upTo, doneThrough);
+        } catch (DataIntegrityViolationException e) {
+            //another instance starting at the same time saved it first
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            boolean more = true;
+            while (more) {
+                more = backfillPage();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not backfill monthly aggregates, the next start resumes where this one stopped", e);
+        }
+    }
+
+    private boolean backfillPage() {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            MonthlyAggregateBackfillState state = stateRepository.findForUpdate().orElse(null);
+            if (state == null || state.isDone()) {
+                return false;
+            }
+            List<Transaction> page = transactionRepository.findRange(state.getDoneThrough(), state.getUpTo(), Limit.of(PAGE_SIZE));
+            //rows of a deleted sender can't be decrypted any more, its key went with the account. they are left out
+            Set<Long> senders = new HashSet<>();
+            accountRepository.findAllById(page.stream().map(Transaction::getSenderId).distinct().toList())
+                    .forEach(account -> senders.add(account.getAccountId()));
+            try {
+                List<Transaction> decrypted = new ArrayList<>(page.size());
+                for (Transaction transaction : page) {
+                    if (!senders.contains(transaction.getSenderId())) {
+                        continue;
+                    }
+                    decrypted.add(Mapper.mapToDecryptedTransaction(transaction, accountKeyManager));
+                }
+                monthlyAggregateService.recordAll(decrypted);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not aggregate transactions after " + state.getDoneThrough(), e);
+            }
+            //rows deleted since upTo was fixed leave the range short, it still ends there
+            state.setDoneThrough(page.isEmpty() ? state.getUpTo() : page.get(page.size() - 1).getTransId());
+            if (state.isDone()) {
+                log.info("Backfilled monthly aggregates through transaction {}", state.getUpTo());
+            }
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,37 @@
+package net.desmond.bankingApp.insights;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+//progress of MonthlyAggregateBackfill, a single row. rows up to upTo are the backfill's, later ones are recorded live,
+//doneThrough moves in the same transaction as each page of aggregates so a restart resumes where it stopped
+@Getter
+@Setter
+@Table(name = "monthly_aggregate_backfill")
+@Entity
+public class MonthlyAggregateBackfillState {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "up_to", nullable = false)
+    private long upTo;
+
+    @Column(name = "done_through", nullable = false)
+    private long doneThrough;
+
+    public MonthlyAggregateBackfillState() {}
+
+    public MonthlyAggregateBackfillState(long upTo, long doneThrough) {
+        this.id = ID;
+        this.upTo = upTo;
+        this.doneThrough = doneThrough;
+    }
+
+    public boolean isDone() {
+        return doneThrough >= upTo;
+    }
+}
@@ -0,0 +1,25 @@
+package net.desmond.bankingApp.insights;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface MonthlyAggregateBackfillStateRepository extends JpaRepository<MonthlyAggregateBackfillState, Long> {
+
+    //a plain insert, save would merge over a row another instance has just written
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO MonthlyAggregateBackfillState (id, upTo, doneThrough) VALUES (:id, :upTo, :doneThrough)")
+    int insert(@Param("id") Long id, @Param("upTo") long upTo, @Param("doneThrough") long doneThrough);
+
+    //held for one page, a second instance starting at the same time waits and then continues after it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MonthlyAggregateBackfillState s WHERE s.id = " + MonthlyAggregateBackfillState.ID)
+    Optional<MonthlyAggregateBackfillState> findForUpdate();
+}
@@ -0,0 +1,10 @@
+package net.desmond.bankingApp.insights;
+
+import java.util.Collection;
+
+public interface MonthlyAggregateBatchRepository {
+
+    //makes sure a row exists for every key without touching existing ones, so two transactions creating the same
+    //month concurrently cannot fail on the unique key. the rows are then locked and updated through JPA
+    void ensureRows(Collection<MonthlyAggregateService.Key> keys);
+}
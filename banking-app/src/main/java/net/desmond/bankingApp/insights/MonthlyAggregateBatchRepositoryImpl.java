@@ -0,0 +1,30 @@
+package net.desmond.bankingApp.insights;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+
+public class MonthlyAggregateBatchRepositoryImpl implements MonthlyAggregateBatchRepository {
+
+    private static final String ENSURE = "INSERT INTO monthly_aggregates (account_id, aggregate_month, status, txn_count) "
+            + "VALUES (?, ?, ?, 0) ON DUPLICATE KEY UPDATE txn_count = txn_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public MonthlyAggregateBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void ensureRows(Collection<MonthlyAggregateService.Key> keys) {
+        jdbcTemplate.batchUpdate(ENSURE, keys, batchSize, (statement, key) -> {
+            statement.setLong(1, key.accountId());
+            statement.setString(2, key.month());
+            statement.setString(3, key.status());
+        });
+    }
+}
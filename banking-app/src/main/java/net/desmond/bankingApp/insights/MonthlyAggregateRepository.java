@@ -0,0 +1,30 @@
+package net.desmond.bankingApp.insights;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MonthlyAggregateRepository extends JpaRepository<MonthlyAggregate, Long>, MonthlyAggregateBatchRepository {
+
+    //may return more rows than asked for (other statuses of the same months), the caller picks its keys
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM MonthlyAggregate a WHERE a.accountId IN :accountIds AND a.month IN :months "
+            + "ORDER BY a.accountId, a.month, a.status")
+    List<MonthlyAggregate> findAllForUpdate(@Param("accountIds") Collection<Long> accountIds, @Param("months") Collection<String> months);
+
+    @Query("SELECT a FROM MonthlyAggregate a WHERE a.accountId = :accountId AND a.month >= :from AND a.month <= :to "
+            + "ORDER BY a.month, a.status")
+    List<MonthlyAggregate> findRange(@Param("accountId") Long accountId, @Param("from") String from, @Param("to") String to);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM MonthlyAggregate a WHERE a.accountId = :accountId")
+    int deleteAccount(@Param("accountId") Long accountId);
+}
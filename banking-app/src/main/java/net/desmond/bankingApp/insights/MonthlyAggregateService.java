@@ -0,0 +1,182 @@
+package net.desmond.bankingApp.insights;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.transactions.Transaction;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.SecretKey;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+//per account, month and status totals of transaction_history, so insights read a handful of rows instead of
+//decrypting the history. record and remove must run in the transaction that inserts or deletes the history rows,
+//they take the aggregate rows' locks in key order
+@Service
+public class MonthlyAggregateService {
+
+    private static final int IN_CHUNK_SIZE = 500;
+    private static final int MAX_MONTHS = 120;
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::accountId)
+            .thenComparing(Key::month)
+            .thenComparing(Key::status);
+
+    private final MonthlyAggregateRepository monthlyAggregateRepository;
+    private final AccountRepository accountRepository;
+    private final AccountKeyManager accountKeyManager;
+
+    public MonthlyAggregateService(MonthlyAggregateRepository monthlyAggregateRepository, AccountRepository accountRepository, AccountKeyManager accountKeyManager) {
+        this.monthlyAggregateRepository = monthlyAggregateRepository;
+        this.accountRepository = accountRepository;
+        this.accountKeyManager = accountKeyManager;
+    }
+
+    //transactions in plain (amountMinor set) as they go into the history
+    public void record(Transaction transaction) throws Exception {
+        apply(List.of(transaction), 1);
+    }
+
+    public void recordAll(Collection<Transaction> transactions) throws Exception {
+        apply(transactions, 1);
+    }
+
+    //decrypted history row that is being deleted
+    public void remove(Transaction transaction) throws Exception {
+        apply(List.of(transaction), -1);
+    }
+
+    public void deleteAccount(Long accountId) {
+        monthlyAggregateRepository.deleteAccount(accountId);
+    }
+
+    //every month from..to, months without history are zero
+    public List<MonthlyInsight> insights(Long accountId, YearMonth from, YearMonth to) throws Exception {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to.");
+        }
+        if (from.plusMonths(MAX_MONTHS).isBefore(to)) {
+            throw new IllegalArgumentException("At most " + MAX_MONTHS + " months at once.");
+        }
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
+        SecretKey aesKey = accountKeyManager.getAesKey(accountId, account.getAesEncryptedKey());
+
+        Map<String, List<MonthlyAggregate>> byMonth = new HashMap<>();
+        for (MonthlyAggregate aggregate : monthlyAggregateRepository.findRange(accountId, from.toString(), to.toString())) {
+            byMonth.computeIfAbsent(aggregate.getMonth(), month -> new ArrayList<>()).add(aggregate);
+        }
+
+        List<MonthlyInsight> insights = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            long moneyIn = 0;
+            long moneyOut = 0;
+            Map<String, Integer> counts = new TreeMap<>();
+            for (MonthlyAggregate aggregate : byMonth.getOrDefault(month.toString(), List.of())) {
+                moneyIn = Math.addExact(moneyIn, decrypt(aggregate.getMoneyIn(), aesKey));
+                moneyOut = Math.addExact(moneyOut, decrypt(aggregate.getMoneyOut(), aesKey));
+                if (aggregate.getCount() != 0) {
+                    counts.put(aggregate.getStatus(), aggregate.getCount());
+                }
+            }
+            insights.add(new MonthlyInsight(month.toString(), moneyIn, moneyOut, counts));
+        }
+        return insights;
+    }
+
+    private void apply(Collection<Transaction> transactions, int sign) throws Exception {
+        TreeMap<Key, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            String month = TimeUtil.month(transaction.getOccurredAt()).toString();
+            Set<Long> parties = new LinkedHashSet<>(List.of(transaction.getSenderId(), transaction.getReceiverId()));
+            for (Long accountId : parties) {
+                MoneyFlow flow = MoneyFlow.of(accountId, transaction.getSenderId(), transaction.getStatus(), transaction.getAmountMinor());
+                deltas.computeIfAbsent(new Key(accountId, month, transaction.getStatus()), key -> new Delta()).add(sign, flow);
+            }
+        }
+
+        //usually already in the persistence context (locked by the caller), so these are no extra queries
+        Map<Long, String> aesEncryptedKeys = new HashMap<>();
+        for (Key key : deltas.keySet()) {
+            if (!aesEncryptedKeys.containsKey(key.accountId())) {
+                accountRepository.findById(key.accountId())
+                        .ifPresent(account -> aesEncryptedKeys.put(account.getAccountId(), account.getAesEncryptedKey()));
+            }
+        }
+        deltas.keySet().removeIf(key -> !aesEncryptedKeys.containsKey(key.accountId()));
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, SecretKey> aesKeys = accountKeyManager.getAesKeys(aesEncryptedKeys);
+
+        monthlyAggregateRepository.ensureRows(deltas.keySet());
+        Map<Key, MonthlyAggregate> rows = lock(deltas.keySet());
+
+        //managed rows, written at commit
+        for (Map.Entry<Key, Delta> entry : deltas.entrySet()) {
+            MonthlyAggregate row = rows.get(entry.getKey());
+            SecretKey aesKey = aesKeys.get(entry.getKey().accountId());
+            Delta delta = entry.getValue();
+            row.setCount(row.getCount() + delta.count);
+            if (delta.in != 0) {
+                row.setMoneyIn(encrypt(Math.addExact(decrypt(row.getMoneyIn(), aesKey), delta.in), aesKey));
+            }
+            if (delta.out != 0) {
+                row.setMoneyOut(encrypt(Math.addExact(decrypt(row.getMoneyOut(), aesKey), delta.out), aesKey));
+            }
+        }
+    }
+
+    private Map<Key, MonthlyAggregate> lock(Set<Key> keys) {
+        Set<String> months = new LinkedHashSet<>();
+        List<Long> accountIds = new ArrayList<>(new LinkedHashSet<>(keys.stream().map(Key::accountId).toList()));
+        for (Key key : keys) {
+            months.add(key.month());
+        }
+
+        Map<Key, MonthlyAggregate> rows = new HashMap<>();
+        for (int start = 0; start < accountIds.size(); start += IN_CHUNK_SIZE) {
+            List<Long> chunk = accountIds.subList(start, Math.min(start + IN_CHUNK_SIZE, accountIds.size()));
+            for (MonthlyAggregate row : monthlyAggregateRepository.findAllForUpdate(chunk, months)) {
+                rows.put(new Key(row.getAccountId(), row.getMonth(), row.getStatus()), row);
+            }
+        }
+        return rows;
+    }
+
+    private static long decrypt(String amount, SecretKey aesKey) throws Exception {
+        return amount == null ? 0L : MoneyUtil.decode(EncryptionUtil.decryptBytesWithAES(amount, aesKey));
+    }
+
+    private static String encrypt(long amount, SecretKey aesKey) throws Exception {
+        return EncryptionUtil.encryptBytesWithAES(MoneyUtil.encode(amount), aesKey);
+    }
+
+    public record Key(Long accountId, String month, String status) {
+    }
+
+    private static class Delta {
+        private int count;
+        private long in;
+        private long out;
+
+        void add(int sign, MoneyFlow flow) {
+            count += sign;
+            in = Math.addExact(in, sign * flow.in());
+            out = Math.addExact(out, sign * flow.out());
+        }
+    }
+}
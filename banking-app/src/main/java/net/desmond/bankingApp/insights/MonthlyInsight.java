@@ -0,0 +1,13 @@
+package net.desmond.bankingApp.insights;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import net.desmond.bankingApp.utils.MinorUnitsSerializer;
+
+import java.util.Map;
+
+//one month of an account, counts are transaction_history rows by status
+public record MonthlyInsight(String month,
+                             @JsonSerialize(using = MinorUnitsSerializer.class) long moneyIn,
+                             @JsonSerialize(using = MinorUnitsSerializer.class) long moneyOut,
+                             Map<String, Integer> counts) {
+}
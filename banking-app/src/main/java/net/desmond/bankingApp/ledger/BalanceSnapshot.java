@@ -0,0 +1,43 @@
+package net.desmond.bankingApp.ledger;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+//balance of an account after every entry up to and including lastEntryId. only the newest one per account is read,
+//LedgerCompactor writes a new one and drops the older ones
+@Getter
+@Setter
+@Table(name = "balance_snapshots", indexes = {
+        @Index(name = "idx_balance_snapshots_account", columnList = "account_id, id")
+})
+@Entity
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "balance")
+    private String balance; //encrypted MoneyUtil.encode
+
+    @Column(name = "last_entry_id")
+    private Long lastEntryId;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public BalanceSnapshot() {}
+
+    public BalanceSnapshot(Long accountId, String balance, Long lastEntryId) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.lastEntryId = lastEntryId;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,29 @@
+package net.desmond.bankingApp.ledger;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByAccountIdOrderByIdDesc(Long accountId);
+
+    @Query("SELECT s FROM BalanceSnapshot s WHERE s.accountId IN :accountIds "
+            + "AND s.id = (SELECT MAX(s2.id) FROM BalanceSnapshot s2 WHERE s2.accountId = s.accountId)")
+    List<BalanceSnapshot> findLatestByAccountIds(@Param("accountIds") Collection<Long> accountIds);
+
+    @Modifying
+    @Query("DELETE FROM BalanceSnapshot s WHERE s.accountId = :accountId AND s.id < :keepId")
+    int deleteOlderThan(@Param("accountId") Long accountId, @Param("keepId") Long keepId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BalanceSnapshot s WHERE s.accountId = :accountId")
+    int deleteAccount(@Param("accountId") Long accountId);
+}
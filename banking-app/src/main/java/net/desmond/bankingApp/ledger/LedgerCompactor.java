@@ -0,0 +1,93 @@
+package net.desmond.bankingApp.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.service.impl.TransferEngine;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+
+//keeps balance reads short: an account with minEntries entries past its newest snapshot gets a fresh snapshot and the
+//older snapshots are dropped. entries themselves are never touched, they stay as the audit trail.
+//the snapshot is taken under the account's locks so no entry can be appended while it is computed
+@Component
+@Lazy(false)
+public class LedgerCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerCompactor.class);
+
+    private final LedgerService ledgerService;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final AccountKeyManager accountKeyManager;
+    private final TransferEngine transferEngine;
+    private final Counter snapshots;
+
+    private final long minEntries;
+    private final int batchSize;
+
+    public LedgerCompactor(LedgerService ledgerService,
+                           LedgerEntryRepository ledgerEntryRepository,
+                           BalanceSnapshotRepository balanceSnapshotRepository,
+                           AccountRepository accountRepository,
+                           AccountKeyManager accountKeyManager,
+                           TransferEngine transferEngine,
+                           MeterRegistry meterRegistry,
+                           @Value("${bank.ledger.snapshot.min-entries:100}") long minEntries,
+                           @Value("${bank.ledger.snapshot.batch-size:500}") int batchSize) {
+        this.ledgerService = ledgerService;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.transferEngine = transferEngine;
+        this.snapshots = Counter.builder("bank.ledger.snapshots")
+                .description("Balance snapshots written by ledger compaction")
+                .register(meterRegistry);
+        this.minEntries = minEntries;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.ledger.snapshot.interval:10m}", initialDelayString = "${bank.ledger.snapshot.interval:10m}")
+    public void compact() {
+        List<Long> accountIds = ledgerEntryRepository.findAccountsToCompact(minEntries, Limit.of(batchSize));
+        for (Long accountId : accountIds) {
+            try {
+                snapshot(accountId);
+            } catch (Exception e) {
+                log.warn("Could not snapshot ledger of account {}", accountId, e);
+            }
+        }
+    }
+
+    public void snapshot(Long accountId) throws Exception {
+        transferEngine.execute(List.of(accountId), () -> {
+            Account account = accountRepository.findByIdForUpdate(accountId).orElse(null);
+            if (account == null) {
+                return null;
+            }
+            SecretKey aesKey = accountKeyManager.getAesKey(accountId, account.getAesEncryptedKey());
+            LedgerService.Replay replay = ledgerService.replay(account, aesKey);
+
+            BalanceSnapshot snapshot = balanceSnapshotRepository.save(new BalanceSnapshot(accountId,
+                    EncryptionUtil.encryptBytesWithAES(MoneyUtil.encode(replay.balance()), aesKey),
+                    replay.lastEntryId()));
+            balanceSnapshotRepository.deleteOlderThan(accountId, snapshot.getId());
+            snapshots.increment();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package net.desmond.bankingApp.ledger;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+//one leg of a money movement, never updated or deleted. a transfer is a debit on the sender and a credit on the receiver,
+//a deposit or withdrawal has a single leg against the outside world (counterpartyId null). amount is positive and
+//encrypted with the account's own key, direction gives the sign
+@Getter
+@Setter
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account", columnList = "account_id, id")
+})
+@Entity
+public class LedgerEntry {
+
+    public static final String CREDIT = "credit";
+    public static final String DEBIT = "debit";
+
+    //IDENTITY on purpose: entries of one account are only written under that account's row lock, so their ids grow
+    //in commit order and a snapshot's lastEntryId is a safe boundary. a pooled sequence would break that across instances
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "trans_type", length = 16)
+    private String transType;
+
+    @Column(name = "direction", length = 8)
+    private String direction;
+
+    @Column(name = "amount")
+    private String amount; //encrypted MoneyUtil.encode of the positive amount
+
+    @Column(name = "counterparty_id")
+    private Long counterpartyId;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public LedgerEntry() {}
+}
@@ -0,0 +1,9 @@
+package net.desmond.bankingApp.ledger;
+
+import java.util.List;
+
+public interface LedgerEntryBatchRepository {
+
+    //inserts already encrypted entries as JDBC batches, ids stay IDENTITY (see LedgerEntry) so Hibernate cannot batch them
+    void insertAll(List<LedgerEntry> entries);
+}
@@ -0,0 +1,44 @@
+package net.desmond.bankingApp.ledger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class LedgerEntryBatchRepositoryImpl implements LedgerEntryBatchRepository {
+
+    private static final String INSERT = "INSERT INTO ledger_entries "
+            + "(account_id, trans_type, direction, amount, counterparty_id, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public LedgerEntryBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                          @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<LedgerEntry> entries) {
+        //created_at is read back through Hibernate as an Instant in UTC, not the JVM zone
+        Calendar utc = Calendar.getInstance(UTC);
+        jdbcTemplate.batchUpdate(INSERT, entries, batchSize, (statement, entry) -> {
+            statement.setLong(1, entry.getAccountId());
+            statement.setString(2, entry.getTransType());
+            statement.setString(3, entry.getDirection());
+            statement.setString(4, entry.getAmount());
+            if (entry.getCounterpartyId() == null) {
+                statement.setNull(5, Types.BIGINT);
+            } else {
+                statement.setLong(5, entry.getCounterpartyId());
+            }
+            statement.setTimestamp(6, Timestamp.from(entry.getCreatedAt()), utc);
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package net.desmond.bankingApp.ledger;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryBatchRepository {
+
+    @Query("SELECT e FROM LedgerEntry e WHERE e.accountId = :accountId AND e.id > :after ORDER BY e.id")
+    List<LedgerEntry> findAfter(@Param("accountId") Long accountId, @Param("after") Long after);
+
+    @Query("SELECT e FROM LedgerEntry e WHERE e.accountId IN :accountIds AND e.id > :after ORDER BY e.id")
+    List<LedgerEntry> findAfter(@Param("accountIds") Collection<Long> accountIds, @Param("after") Long after);
+
+    //accounts with at least minEntries entries past their newest snapshot
+    @Query("SELECT e.accountId FROM LedgerEntry e WHERE e.id > "
+            + "COALESCE((SELECT MAX(s.lastEntryId) FROM BalanceSnapshot s WHERE s.accountId = e.accountId), 0) "
+            + "GROUP BY e.accountId HAVING COUNT(e) >= :minEntries")
+    List<Long> findAccountsToCompact(@Param("minEntries") long minEntries, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LedgerEntry e WHERE e.accountId = :accountId")
+    int deleteAccount(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,160 @@
+package net.desmond.bankingApp.ledger;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//balances are derived, never stored in place: the newest snapshot (or the opening balance on the account row while
+//there is none) plus every entry written after it. money movements only append entries, the account row is not
+//rewritten. callers must hold the row lock of every account they post to, see TransferEngine
+@Service
+public class LedgerService {
+
+    private static final int IN_CHUNK_SIZE = 500;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountKeyManager accountKeyManager;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository, BalanceSnapshotRepository balanceSnapshotRepository, AccountKeyManager accountKeyManager) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountKeyManager = accountKeyManager;
+    }
+
+    public static Posting credit(Account account, long amount, Long counterpartyId, String transType) {
+        return new Posting(account.getAccountId(), account.getAesEncryptedKey(), LedgerEntry.CREDIT, amount, counterpartyId, transType);
+    }
+
+    public static Posting debit(Account account, long amount, Long counterpartyId, String transType) {
+        return new Posting(account.getAccountId(), account.getAesEncryptedKey(), LedgerEntry.DEBIT, amount, counterpartyId, transType);
+    }
+
+    public static List<Posting> transfer(Account sender, Account receiver, long amount) {
+        return List.of(debit(sender, amount, receiver.getAccountId(), "transfer"),
+                credit(receiver, amount, sender.getAccountId(), "transfer"));
+    }
+
+    public void post(List<Posting> postings) throws Exception {
+        Map<Long, String> aesEncryptedKeys = new HashMap<>();
+        for (Posting posting : postings) {
+            aesEncryptedKeys.putIfAbsent(posting.accountId(), posting.aesEncryptedKey());
+        }
+        Map<Long, SecretKey> aesKeys = accountKeyManager.getAesKeys(aesEncryptedKeys);
+
+        Instant now = Instant.now();
+        List<LedgerEntry> entries = new ArrayList<>(postings.size());
+        for (Posting posting : postings) {
+            LedgerEntry entry = new LedgerEntry();
+            entry.setAccountId(posting.accountId());
+            entry.setTransType(posting.transType());
+            entry.setDirection(posting.direction());
+            entry.setAmount(EncryptionUtil.encryptBytesWithAES(MoneyUtil.encode(posting.amount()), aesKeys.get(posting.accountId())));
+            entry.setCounterpartyId(posting.counterpartyId());
+            entry.setCreatedAt(now);
+            entries.add(entry);
+        }
+        ledgerEntryRepository.insertAll(entries);
+    }
+
+    //with the account itself, entries of other accounts naming it as counterparty stay
+    public void deleteAccount(Long accountId) {
+        balanceSnapshotRepository.deleteAccount(accountId);
+        ledgerEntryRepository.deleteAccount(accountId);
+    }
+
+    //account as loaded from the database (encrypted)
+    public long balance(Account account) throws Exception {
+        return replay(account, accountKeyManager.getAesKey(account.getAccountId(), account.getAesEncryptedKey())).balance();
+    }
+
+    public Map<Long, Long> balances(Collection<Account> accounts) throws Exception {
+        Map<Long, Long> balances = new HashMap<>();
+        List<Account> all = new ArrayList<>(accounts);
+        for (int start = 0; start < all.size(); start += IN_CHUNK_SIZE) {
+            balances.putAll(balancesOf(all.subList(start, Math.min(start + IN_CHUNK_SIZE, all.size()))));
+        }
+        return balances;
+    }
+
+    //balance and the id of the last entry it includes, the caller holds the row lock so nothing can be appended meanwhile
+    Replay replay(Account account, SecretKey aesKey) throws Exception {
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findFirstByAccountIdOrderByIdDesc(account.getAccountId()).orElse(null);
+        return replay(account, snapshot, ledgerEntryRepository.findAfter(account.getAccountId(), after(snapshot)), aesKey);
+    }
+
+    private Map<Long, Long> balancesOf(List<Account> accounts) throws Exception {
+        Map<Long, String> aesEncryptedKeys = new HashMap<>();
+        for (Account account : accounts) {
+            aesEncryptedKeys.put(account.getAccountId(), account.getAesEncryptedKey());
+        }
+        Map<Long, SecretKey> aesKeys = accountKeyManager.getAesKeys(aesEncryptedKeys);
+
+        Map<Long, BalanceSnapshot> snapshots = new HashMap<>();
+        long after = Long.MAX_VALUE;
+        for (BalanceSnapshot snapshot : balanceSnapshotRepository.findLatestByAccountIds(aesEncryptedKeys.keySet())) {
+            snapshots.put(snapshot.getAccountId(), snapshot);
+        }
+        for (Account account : accounts) {
+            after = Math.min(after, after(snapshots.get(account.getAccountId())));
+        }
+
+        //one query from the oldest snapshot of the chunk, each account then skips what its own snapshot already covers
+        Map<Long, List<LedgerEntry>> entries = new HashMap<>();
+        for (LedgerEntry entry : ledgerEntryRepository.findAfter(aesEncryptedKeys.keySet(), after)) {
+            entries.computeIfAbsent(entry.getAccountId(), id -> new ArrayList<>()).add(entry);
+        }
+
+        Map<Long, Long> balances = new HashMap<>();
+        for (Account account : accounts) {
+            Long accountId = account.getAccountId();
+            BalanceSnapshot snapshot = snapshots.get(accountId);
+            long accountAfter = after(snapshot);
+            List<LedgerEntry> own = entries.getOrDefault(accountId, List.of()).stream()
+                    .filter(entry -> entry.getId() > accountAfter)
+                    .toList();
+            balances.put(accountId, replay(account, snapshot, own, aesKeys.get(accountId)).balance());
+        }
+        return balances;
+    }
+
+    private static Replay replay(Account account, BalanceSnapshot snapshot, List<LedgerEntry> entries, SecretKey aesKey) throws Exception {
+        String[] amounts = new String[entries.size() + 1];
+        amounts[0] = snapshot != null ? snapshot.getBalance() : account.getBalance();
+        for (int i = 0; i < entries.size(); i++) {
+            amounts[i + 1] = entries.get(i).getAmount();
+        }
+        byte[][] decrypted = EncryptionUtil.decryptAllWithAES(aesKey, amounts);
+
+        long balance = MoneyUtil.decode(decrypted[0]);
+        long lastEntryId = after(snapshot);
+        for (int i = 0; i < entries.size(); i++) {
+            long amount = MoneyUtil.decode(decrypted[i + 1]);
+            balance = LedgerEntry.CREDIT.equals(entries.get(i).getDirection())
+                    ? Math.addExact(balance, amount)
+                    : Math.subtractExact(balance, amount);
+            lastEntryId = entries.get(i).getId();
+        }
+        return new Replay(balance, lastEntryId);
+    }
+
+    private static long after(BalanceSnapshot snapshot) {
+        return snapshot == null ? 0L : snapshot.getLastEntryId();
+    }
+
+    public record Posting(Long accountId, String aesEncryptedKey, String direction, long amount, Long counterpartyId, String transType) {
+    }
+
+    record Replay(long balance, long lastEntryId) {
+    }
+}
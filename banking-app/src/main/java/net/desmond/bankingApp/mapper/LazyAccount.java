@@ -0,0 +1,112 @@
+package net.desmond.bankingApp.mapper;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+
+import javax.crypto.SecretKey;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+//view over a loaded (encrypted) account row. a field is decrypted the first time it is read, the key is only resolved
+//if some field is read or written at all. writeBack re-encrypts just the fields that were set and puts them on the row,
+//Account is @DynamicUpdate so the UPDATE only carries those columns.
+//the balance is not here, the current one comes from LedgerService
+public class LazyAccount {
+
+    private enum Field {
+        NAME(Account::getAccountHolderName, Account::setAccountHolderName),
+        ADDRESS(Account::getAccountHolderAddress, Account::setAccountHolderAddress),
+        EMAIL(Account::getAccountHolderEmailAddress, Account::setAccountHolderEmailAddress),
+        ROLE(Account::getRole, Account::setRole),
+        VERIFICATION_STATUS(Account::getVerificationStatus, Account::setVerificationStatus);
+
+        private final Function<Account, String> column;
+        private final BiConsumer<Account, String> setColumn;
+
+        Field(Function<Account, String> column, BiConsumer<Account, String> setColumn) {
+            this.column = column;
+            this.setColumn = setColumn;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final Account row;
+    private final AccountKeyManager accountKeyManager;
+    private final String[] plain = new String[FIELDS.length];
+    private final boolean[] dirty = new boolean[FIELDS.length];
+    private SecretKey aesKey;
+
+    LazyAccount(Account row, AccountKeyManager accountKeyManager) {
+        this.row = row;
+        this.accountKeyManager = accountKeyManager;
+    }
+
+    public Long getAccountId() {
+        return row.getAccountId();
+    }
+
+    public String getAccountHolderName() throws Exception {
+        return read(Field.NAME);
+    }
+
+    public String getAccountHolderAddress() throws Exception {
+        return read(Field.ADDRESS);
+    }
+
+    public void setAccountHolderAddress(String accountHolderAddress) {
+        write(Field.ADDRESS, accountHolderAddress);
+    }
+
+    public String getAccountHolderEmailAddress() throws Exception {
+        return read(Field.EMAIL);
+    }
+
+    public void setAccountHolderEmailAddress(String accountHolderEmailAddress) {
+        write(Field.EMAIL, accountHolderEmailAddress);
+    }
+
+    public String getRole() throws Exception {
+        return read(Field.ROLE);
+    }
+
+    public String getVerificationStatus() throws Exception {
+        return read(Field.VERIFICATION_STATUS);
+    }
+
+    public void setVerificationStatus(String verificationStatus) {
+        write(Field.VERIFICATION_STATUS, verificationStatus);
+    }
+
+    //the row, with every field set since loading encrypted onto it
+    public Account writeBack() throws Exception {
+        for (Field field : FIELDS) {
+            if (dirty[field.ordinal()]) {
+                field.setColumn.accept(row, EncryptionUtil.encryptWithAES(plain[field.ordinal()], key()));
+                dirty[field.ordinal()] = false;
+            }
+        }
+        return row;
+    }
+
+    private String read(Field field) throws Exception {
+        int i = field.ordinal();
+        if (plain[i] == null && !dirty[i]) {
+            plain[i] = new String(EncryptionUtil.decryptBytesWithAES(field.column.apply(row), key()));
+        }
+        return plain[i];
+    }
+
+    private void write(Field field, String value) {
+        plain[field.ordinal()] = value;
+        dirty[field.ordinal()] = true;
+    }
+
+    private SecretKey key() throws Exception {
+        if (aesKey == null) {
+            aesKey = accountKeyManager.getAesKey(row.getAccountId(), row.getAesEncryptedKey());
+        }
+        return aesKey;
+    }
+}
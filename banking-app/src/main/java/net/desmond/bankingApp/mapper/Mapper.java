@@ -2,17 +2,19 @@ package net.desmond.bankingApp.mapper;
 
 import net.desmond.bankingApp.dto.AccountDto;
 import net.desmond.bankingApp.entity.Account;
-import net.desmond.bankingApp.secureVault.AccountCredRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
 import net.desmond.bankingApp.transactions.Transaction;
 import net.desmond.bankingApp.transactions.TransactionDto;
 import net.desmond.bankingApp.utils.EncryptionUtil;
-import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import net.desmond.bankingApp.utils.TimeUtil;
 
 
 import javax.crypto.SecretKey;
-import java.security.PrivateKey;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Mapper {
 
@@ -20,7 +22,7 @@ public class Mapper {
         return new Account(
                 accountDto.getAccountId(),
                 accountDto.getAccountHolderName(),
-                String.valueOf(accountDto.getBalance()),
+                accountDto.getBalance(),
                 accountDto.getAccountHolderAddress(),
                 accountDto.getAccountHolderEmailAddress()
         );
@@ -30,27 +32,36 @@ public class Mapper {
         return new AccountDto(
                 account.getAccountId(),
                 account.getAccountHolderName(),
-                Double.valueOf(account.getBalance()),
+                account.getBalanceMinor(),
                 account.getAccountHolderAddress(),
                 account.getAccountHolderEmailAddress()
         );
     }
 
-    public static Account mapToEncryptedAccount(Account account, AccountCredRepository accountCredRepository) throws Exception {
+    public static Account mapToEncryptedAccount(Account account, AccountKeyManager accountKeyManager) throws Exception {
+        //decrypt key
+        SecretKey aesKey = accountKeyManager.getAesKey(account.getAccountId(), account.getAesEncryptedKey());
+        return mapToEncryptedAccount(account, aesKey);
+    }
+
+    //for accounts that have no id yet, the caller holds the freshly generated key
+    public static Account mapToEncryptedAccount(Account account, SecretKey aesKey) throws Exception {
         Account encryptedAccount = new Account();
 
-        //decrypt key
-        String base64PrivateKey = accountCredRepository.findPrivateKeyByAccountId(account.getAccountId());
-        PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
-        SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(account.getAesEncryptedKey(), privateKey);
-
-        //encrypt
-        String encryptedName = EncryptionUtil.encryptWithAES(account.getAccountHolderName(), aesKey);
-        String encryptedBalance = EncryptionUtil.encryptWithAES(account.getBalance(), aesKey);
-        String encryptedAddress = EncryptionUtil.encryptWithAES(account.getAccountHolderAddress(), aesKey);
-        String encryptedEmailAddress = EncryptionUtil.encryptWithAES(account.getAccountHolderEmailAddress(), aesKey);
-        String encryptedRole = EncryptionUtil.encryptWithAES(account.getRole(), aesKey);
-        String encryptedVerificationStatus = EncryptionUtil.encryptWithAES(account.getVerificationStatus(), aesKey);
+        //encrypt, all six fields under one cipher init
+        String[] encrypted = EncryptionUtil.encryptAllWithAES(aesKey,
+                account.getAccountHolderName().getBytes(),
+                MoneyUtil.encode(account.getBalanceMinor()),
+                account.getAccountHolderAddress().getBytes(),
+                account.getAccountHolderEmailAddress().getBytes(),
+                account.getRole().getBytes(),
+                account.getVerificationStatus().getBytes());
+        String encryptedName = encrypted[0];
+        String encryptedBalance = encrypted[1];
+        String encryptedAddress = encrypted[2];
+        String encryptedEmailAddress = encrypted[3];
+        String encryptedRole = encrypted[4];
+        String encryptedVerificationStatus = encrypted[5];
 
         //assign values
         encryptedAccount.setAccountId(account.getAccountId());
@@ -62,83 +73,123 @@ public class Mapper {
         encryptedAccount.setRsaPublicKey(account.getRsaPublicKey());
         encryptedAccount.setRole(encryptedRole);
         encryptedAccount.setVerificationStatus(encryptedVerificationStatus);
+        encryptedAccount.setEmailBlindIndex(account.getEmailBlindIndex());
 
         return encryptedAccount;
     }
 
-    public static Account mapToDecryptedAccount(Account account, AccountCredRepository accountCredRepository) throws Exception {
+    public static Account mapToDecryptedAccount(Account account, AccountKeyManager accountKeyManager) throws Exception {
         Account decryptedAccount = new Account();
 
         //decrypt key
-        String base64PrivateKey = accountCredRepository.findPrivateKeyByAccountId(account.getAccountId());
-        PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
-        SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(account.getAesEncryptedKey(), privateKey);
-
-        //decrypt
-        String decryptedName = EncryptionUtil.decryptWithAES(account.getAccountHolderName(), aesKey);
-        String decryptedBalance = EncryptionUtil.decryptWithAES(account.getBalance(), aesKey);
-        String decryptedAddress = EncryptionUtil.decryptWithAES(account.getAccountHolderAddress(), aesKey);
-        String decryptedEmailAddress = EncryptionUtil.decryptWithAES(account.getAccountHolderEmailAddress(), aesKey);
-        String decryptedRole = EncryptionUtil.decryptWithAES(account.getRole(), aesKey);
-        String decryptedVerificationStatus = EncryptionUtil.decryptWithAES(account.getVerificationStatus(), aesKey);
+        SecretKey aesKey = accountKeyManager.getAesKey(account.getAccountId(), account.getAesEncryptedKey());
+
+        //decrypt, all six fields under one cipher init
+        byte[][] decrypted = EncryptionUtil.decryptAllWithAES(aesKey,
+                account.getAccountHolderName(),
+                account.getBalance(),
+                account.getAccountHolderAddress(),
+                account.getAccountHolderEmailAddress(),
+                account.getRole(),
+                account.getVerificationStatus());
+        String decryptedName = new String(decrypted[0]);
+        long decryptedBalance = MoneyUtil.decode(decrypted[1]);
+        String decryptedAddress = new String(decrypted[2]);
+        String decryptedEmailAddress = new String(decrypted[3]);
+        String decryptedRole = new String(decrypted[4]);
+        String decryptedVerificationStatus = new String(decrypted[5]);
 
         //assign values
         decryptedAccount.setAccountId(account.getAccountId());
         decryptedAccount.setAccountHolderName(decryptedName);
-        decryptedAccount.setBalance(decryptedBalance);
+        decryptedAccount.setBalanceMinor(decryptedBalance);
         decryptedAccount.setAccountHolderAddress(decryptedAddress);
         decryptedAccount.setAccountHolderEmailAddress(decryptedEmailAddress);
         decryptedAccount.setAesEncryptedKey(account.getAesEncryptedKey());
         decryptedAccount.setRsaPublicKey(account.getRsaPublicKey());
         decryptedAccount.setRole(decryptedRole);
         decryptedAccount.setVerificationStatus(decryptedVerificationStatus);
+        decryptedAccount.setEmailBlindIndex(account.getEmailBlindIndex());
 
         return decryptedAccount;
     }
 
+    //for a row as loaded from the database, the balance on it is only the opening balance so the caller passes the
+    //current one from the ledger
+    public static AccountDto mapToAccountDto(Account account, long balance, AccountKeyManager accountKeyManager) throws Exception {
+        LazyAccount lazy = mapToLazyAccount(account, accountKeyManager);
+        return new AccountDto(account.getAccountId(), lazy.getAccountHolderName(), balance,
+                lazy.getAccountHolderAddress(), lazy.getAccountHolderEmailAddress());
+    }
+
+    //decrypts on first access instead of up front, for callers that only need a field or two
+    public static LazyAccount mapToLazyAccount(Account account, AccountKeyManager accountKeyManager) {
+        return new LazyAccount(account, accountKeyManager);
+    }
+
     public static TransactionDto mapToTransactionDto(Transaction transaction){
         return new TransactionDto(
                 transaction.getTransId(),
                 transaction.getSenderId(),
                 transaction.getReceiverId(),
-                Double.valueOf(transaction.getAmount()),
+                transaction.getAmountMinor(),
                 transaction.getStatus(),
-                LocalDateTime.parse(transaction.getTimestamp()).format(DateTimeFormatter.ofPattern("dd MMM, hh:mm a"))
+                TimeUtil.display(transaction.getOccurredAt()),
+                transaction.getOccurredAt() == null ? 0 : transaction.getOccurredAt().toEpochMilli()
         );
     }
 
-    public static Transaction mapToEncryptedTransaction(Transaction transaction, AccountCredRepository accountCredRepository) throws Exception {
-        String base64PrivateKey = accountCredRepository.findPrivateKeyByAccountId(transaction.getSenderId());
-        PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
-        SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(transaction.getSenderAesEncryptedKey(), privateKey);
+    public static Transaction mapToEncryptedTransaction(Transaction transaction, AccountKeyManager accountKeyManager) throws Exception {
+        SecretKey aesKey = accountKeyManager.getAesKey(transaction.getSenderId(), transaction.getSenderAesEncryptedKey());
 
-        String encryptedAmount = EncryptionUtil.encryptWithAES(transaction.getAmount(), aesKey);
+        String encryptedAmount = EncryptionUtil.encryptBytesWithAES(MoneyUtil.encode(transaction.getAmountMinor()), aesKey);
 
-        return new Transaction(
-                transaction.getSenderId(),
-                transaction.getReceiverId(),
-                encryptedAmount,
-                transaction.getStatus(),
-                transaction.getSenderAesEncryptedKey()
-        );
+        Transaction encryptedTransaction = new Transaction();
+        encryptedTransaction.setSenderId(transaction.getSenderId());
+        encryptedTransaction.setReceiverId(transaction.getReceiverId());
+        encryptedTransaction.setAmount(encryptedAmount);
+        encryptedTransaction.setStatus(transaction.getStatus());
+        encryptedTransaction.setOccurredAt(transaction.getOccurredAt());
+        encryptedTransaction.setSenderAesEncryptedKey(transaction.getSenderAesEncryptedKey());
+        return encryptedTransaction;
     }
 
-    public static Transaction mapToDecryptedTransaction(Transaction transaction, AccountCredRepository accountCredRepository) throws Exception {
-        String base64PrivateKey = accountCredRepository.findPrivateKeyByAccountId(transaction.getSenderId());
-        PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
-        SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(transaction.getSenderAesEncryptedKey(), privateKey);
+    public static Transaction mapToDecryptedTransaction(Transaction transaction, AccountKeyManager accountKeyManager) throws Exception {
+        SecretKey aesKey = accountKeyManager.getAesKey(transaction.getSenderId(), transaction.getSenderAesEncryptedKey());
+        return mapToDecryptedTransaction(transaction, aesKey);
+    }
 
-        String decryptedAmount = EncryptionUtil.decryptWithAES(transaction.getAmount(), aesKey);
+    //decrypts a whole list with one key lookup per distinct sender instead of one per row
+    public static List<TransactionDto> mapToDecryptedTransactionDtos(List<Transaction> transactions, AccountKeyManager accountKeyManager) throws Exception {
+        Map<Long, String> senderKeys = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            senderKeys.putIfAbsent(transaction.getSenderId(), transaction.getSenderAesEncryptedKey());
+        }
+        Map<Long, SecretKey> aesKeys = accountKeyManager.getAesKeys(senderKeys);
+
+        List<TransactionDto> transactionDtos = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            SecretKey aesKey = aesKeys.get(transaction.getSenderId());
+            if (aesKey == null || !transaction.getSenderAesEncryptedKey().equals(senderKeys.get(transaction.getSenderId()))) {
+                aesKey = accountKeyManager.getAesKey(transaction.getSenderId(), transaction.getSenderAesEncryptedKey());
+            }
+            transactionDtos.add(mapToTransactionDto(mapToDecryptedTransaction(transaction, aesKey)));
+        }
+        return transactionDtos;
+    }
 
-        return new Transaction(
-                transaction.getTransId(),
-                transaction.getSenderId(),
-                transaction.getReceiverId(),
-                decryptedAmount,
-                transaction.getStatus(),
-                transaction.getTimestamp(),
-                transaction.getSenderAesEncryptedKey()
-        );
+    private static Transaction mapToDecryptedTransaction(Transaction transaction, SecretKey aesKey) throws Exception {
+        long decryptedAmount = MoneyUtil.decode(EncryptionUtil.decryptBytesWithAES(transaction.getAmount(), aesKey));
+
+        Transaction decryptedTransaction = new Transaction();
+        decryptedTransaction.setTransId(transaction.getTransId());
+        decryptedTransaction.setSenderId(transaction.getSenderId());
+        decryptedTransaction.setReceiverId(transaction.getReceiverId());
+        decryptedTransaction.setAmountMinor(decryptedAmount);
+        decryptedTransaction.setStatus(transaction.getStatus());
+        decryptedTransaction.setOccurredAt(transaction.getOccurredAt());
+        decryptedTransaction.setSenderAesEncryptedKey(transaction.getSenderAesEncryptedKey());
+        return decryptedTransaction;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package net.desmond.bankingApp.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+//endpoint latency itself comes from Spring Boot's http.server.requests timer, this adds the per request key lookup count
+@Configuration
+public class MetricsWebConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricsWebConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new KeyLookupInterceptor(meterRegistry)).addPathPatterns("/bank/**");
+    }
+}
@@ -0,0 +1,16 @@
+package net.desmond.bankingApp.onboarding;
+
+//outcome of one uploaded row, row is 1 based and counts data rows only (the CSV header is not a row)
+public record BulkAccountResult(int row, String status, Long accountId, String accountHolderEmailAddress, String error) {
+
+    public static final String CREATED = "created";
+    public static final String FAILED = "failed";
+
+    static BulkAccountResult created(int row, Long accountId, String email) {
+        return new BulkAccountResult(row, CREATED, accountId, email, null);
+    }
+
+    static BulkAccountResult failed(int row, String email, String error) {
+        return new BulkAccountResult(row, FAILED, null, email, error);
+    }
+}
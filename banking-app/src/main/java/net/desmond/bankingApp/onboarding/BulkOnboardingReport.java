@@ -0,0 +1,11 @@
+package net.desmond.bankingApp.onboarding;
+
+import java.util.List;
+
+public record BulkOnboardingReport(int created, int failed, List<BulkAccountResult> results) {
+
+    static BulkOnboardingReport of(List<BulkAccountResult> results) {
+        int created = (int) results.stream().filter(result -> BulkAccountResult.CREATED.equals(result.status())).count();
+        return new BulkOnboardingReport(created, results.size() - created, results);
+    }
+}
@@ -0,0 +1,278 @@
+package net.desmond.bankingApp.onboarding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.entity.AccountCred;
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.secureVault.KeyPairPool;
+import net.desmond.bankingApp.utils.BlindIndexService;
+import net.desmond.bankingApp.utils.EmailService;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.HashingUtil;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKey;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+//creates accounts in chunks. the expensive part of every row (RSA pair, bcrypt, AES encryption, blind index) runs in
+//parallel on a dedicated fork join pool, then the chunk is inserted in one transaction. account ids come from a pooled
+//sequence, so with hibernate.jdbc.batch_size the account and credential inserts go out as JDBC batches.
+//a bad row only fails itself, a chunk that cannot be committed fails all of its rows
+@Service
+public class BulkOnboardingService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkOnboardingService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AccountRepository accountRepository;
+    private final AccountKeyManager accountKeyManager;
+    private final KeyPairPool keyPairPool;
+    private final BlindIndexService blindIndexService;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool workers;
+    private final Counter createdRows;
+    private final Counter failedRows;
+
+    private final String backendUrl;
+    private final int chunkSize;
+    private final int maxRows;
+
+    public BulkOnboardingService(AccountRepository accountRepository,
+                                 AccountKeyManager accountKeyManager,
+                                 KeyPairPool keyPairPool,
+                                 BlindIndexService blindIndexService,
+                                 EmailService emailService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${BACKEND_URL}") String backendUrl,
+                                 @Value("${bank.onboarding.parallelism:0}") int parallelism,
+                                 @Value("${bank.onboarding.chunk-size:500}") int chunkSize,
+                                 @Value("${bank.onboarding.max-rows:10000}") int maxRows) {
+        this.accountRepository = accountRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.keyPairPool = keyPairPool;
+        this.blindIndexService = blindIndexService;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.createdRows = rowCounter(meterRegistry, BulkAccountResult.CREATED);
+        this.failedRows = rowCounter(meterRegistry, BulkAccountResult.FAILED);
+        this.backendUrl = backendUrl;
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+    }
+
+    public BulkOnboardingReport importAccounts(List<Map<String, Object>> rows) throws Exception {
+        if (rows.size() > maxRows) {
+            throw new IllegalArgumentException("Upload has more than " + maxRows + " rows.");
+        }
+        return importAccounts(rows.iterator());
+    }
+
+    public BulkOnboardingReport importAccounts(Iterator<Map<String, Object>> rows) throws Exception {
+        List<BulkAccountResult> results = new ArrayList<>();
+        Set<String> seenIndexes = new HashSet<>();
+        int rowNumber = 0;
+
+        while (rows.hasNext()) {
+            List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+            while (rows.hasNext() && chunk.size() < chunkSize && rowNumber + chunk.size() < maxRows) {
+                chunk.add(rows.next());
+            }
+            if (chunk.isEmpty()) {
+                results.add(BulkAccountResult.failed(rowNumber + 1, null,
+                        "Row limit of " + maxRows + " reached, remaining rows were not imported."));
+                break;
+            }
+            results.addAll(importChunk(rowNumber, chunk, seenIndexes));
+            rowNumber += chunk.size();
+        }
+
+        BulkOnboardingReport report = BulkOnboardingReport.of(results);
+        createdRows.increment(report.created());
+        failedRows.increment(report.failed());
+        return report;
+    }
+
+    private List<BulkAccountResult> importChunk(int firstRow, List<Map<String, Object>> chunk, Set<String> seenIndexes) throws Exception {
+        List<PreparedAccount> prepared;
+        try {
+            prepared = workers.submit(() -> IntStream.range(0, chunk.size())
+                    .parallel()
+                    .mapToObj(i -> prepare(firstRow + i + 1, chunk.get(i)))
+                    .toList()).get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+
+        BulkAccountResult[] results = new BulkAccountResult[prepared.size()];
+        List<PreparedAccount> toInsert = new ArrayList<>();
+        for (int i = 0; i < prepared.size(); i++) {
+            PreparedAccount account = prepared.get(i);
+            if (account.error() != null) {
+                results[i] = BulkAccountResult.failed(account.row(), account.email(), account.error());
+            } else if (!seenIndexes.add(account.emailBlindIndex())) {
+                results[i] = BulkAccountResult.failed(account.row(), account.email(), "Email appears more than once in the upload.");
+            } else {
+                toInsert.add(account);
+            }
+        }
+
+        try {
+            Set<Long> inserted = insert(toInsert);
+            for (PreparedAccount account : toInsert) {
+                Long id = account.account().getAccountId();
+                if (inserted.contains(id)) {
+                    accountKeyManager.cacheAesKey(id, account.account().getAesEncryptedKey(), account.aesKey());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk onboarding chunk starting at row {} could not be saved", firstRow + 1, e);
+            for (PreparedAccount account : toInsert) {
+                account.account().setAccountId(null);
+            }
+        }
+
+        for (int i = 0, next = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            PreparedAccount account = toInsert.get(next++);
+            Long id = account.account().getAccountId();
+            results[i] = id != null
+                    ? BulkAccountResult.created(account.row(), id, account.email())
+                    : BulkAccountResult.failed(account.row(), account.email(), account.error() != null ? account.error() : "Could not be saved, retry the row.");
+        }
+        return List.of(results);
+    }
+
+    //returns the ids that were committed, rows whose email already exists are left without an id
+    private Set<Long> insert(List<PreparedAccount> accounts) {
+        if (accounts.isEmpty()) {
+            return Set.of();
+        }
+        return transactionTemplate.execute(status -> {
+            Set<String> existing = new HashSet<>(accountRepository.findExistingEmailBlindIndexes(
+                    accounts.stream().map(PreparedAccount::emailBlindIndex).toList()));
+
+            Set<Long> inserted = new HashSet<>();
+            for (int i = 0; i < accounts.size(); i++) {
+                PreparedAccount account = accounts.get(i);
+                if (existing.contains(account.emailBlindIndex())) {
+                    accounts.set(i, account.withError("Account with this Email already exists."));
+                    continue;
+                }
+                entityManager.persist(account.account());
+                Long id = account.account().getAccountId();
+                entityManager.persist(new AccountCred(id, account.hashedPassword(), account.rsaPrivateKey()));
+
+                String link = backendUrl + "/bank/verify?id=" + id + "&token=" + URLEncoder.encode(account.verificationToken(), StandardCharsets.UTF_8);
+                emailService.sendVerificationEmail(account.email(),
+                        "Silverstone: Email Verification",
+                        "\nClick this link to verify your email: " + link + "\nfrom Silverstone Support Team");
+                inserted.add(id);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return inserted;
+        });
+    }
+
+    //everything that does not need the database, runs on the fork join pool
+    private PreparedAccount prepare(int row, Map<String, Object> data) {
+        String email = null;
+        try {
+            String accountHolderName = required(data, "accountHolderName");
+            long balance = MoneyUtil.parse(required(data, "balance"));
+            String accountHolderAddress = required(data, "accountHolderAddress");
+            email = required(data, "accountHolderEmailAddress").toLowerCase();
+            String role = required(data, "accountHolderRole").toLowerCase();
+            String password = required(data, "password");
+
+            SecretKey aesKey = KeyGeneratorUtil.generateAESKey();
+            KeyPair rsaKeyPair = keyPairPool.take();
+            String verificationToken = UUID.randomUUID().toString();
+
+            Account account = new Account(null, accountHolderName, balance, accountHolderAddress, email);
+            account.setRole(role);
+            account.setVerificationStatus(verificationToken);
+            account.setAesEncryptedKey(EncryptionUtil.encryptAESKeyWithRSA(aesKey, rsaKeyPair.getPublic()));
+            account.setRsaPublicKey(KeyGeneratorUtil.encodeKeyToBase64(rsaKeyPair.getPublic()));
+            account.setEmailBlindIndex(blindIndexService.emailIndex(email));
+
+            return new PreparedAccount(row, email, account.getEmailBlindIndex(),
+                    Mapper.mapToEncryptedAccount(account, aesKey),
+                    aesKey,
+                    HashingUtil.hashPassword(password),
+                    KeyGeneratorUtil.encodeKeyToBase64(rsaKeyPair.getPrivate()),
+                    verificationToken,
+                    null);
+        } catch (IllegalArgumentException e) {
+            return PreparedAccount.failed(row, email, e.getMessage());
+        } catch (Exception e) {
+            log.error("Bulk onboarding could not prepare row {}", row, e);
+            return PreparedAccount.failed(row, email, "Could not be prepared.");
+        }
+    }
+
+    private static String required(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        String text = value == null ? "" : value.toString().trim();
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + field + ".");
+        }
+        return text;
+    }
+
+    private Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("bank.onboarding.rows")
+                .description("Bulk onboarding rows by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private record PreparedAccount(int row, String email, String emailBlindIndex, Account account, SecretKey aesKey,
+                                   String hashedPassword, String rsaPrivateKey, String verificationToken, String error) {
+
+        static PreparedAccount failed(int row, String email, String error) {
+            return new PreparedAccount(row, email, null, null, null, null, null, null, error);
+        }
+
+        PreparedAccount withError(String error) {
+            return new PreparedAccount(row, email, emailBlindIndex, account, aesKey, hashedPassword, rsaPrivateKey, verificationToken, error);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.desmond.bankingApp.onboarding;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+//reads an upload row by row straight off the request body, so only the chunk being imported is held in memory.
+//the header row names the columns (same keys as the POST /bank body, any order). RFC 4180 quoting, a quoted field
+//may hold commas, doubled quotes and line breaks. blank lines are skipped
+public class CsvAccountReader implements Iterator<Map<String, Object>> {
+
+    private final Reader reader;
+    private final List<String> header;
+    private int pushedBack = -2;
+    private List<String> next;
+
+    public CsvAccountReader(Reader reader) {
+        this.reader = reader;
+        List<String> firstRecord = readRecord();
+        if (firstRecord == null) {
+            throw new IllegalArgumentException("CSV upload is empty.");
+        }
+        if (!firstRecord.isEmpty() && firstRecord.get(0).startsWith("﻿")) {
+            firstRecord.set(0, firstRecord.get(0).substring(1));
+        }
+        this.header = firstRecord.stream().map(String::trim).toList();
+        this.next = readRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = next;
+        next = readRecord();
+
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < header.size() && i < fields.size(); i++) {
+            row.put(header.get(i), fields.get(i));
+        }
+        return row;
+    }
+
+    //null at end of input
+    private List<String> readRecord() {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAny = false;
+
+        int c;
+        while ((c = read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int after = read();
+                    if (after == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(after);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                sawAny = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                sawAny = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int after = read();
+                    if (after != '\n') {
+                        unread(after);
+                    }
+                }
+                if (sawAny || field.length() > 0) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                //blank line
+            } else {
+                field.append((char) c);
+                sawAny = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("CSV upload ends inside a quoted field.");
+        }
+        if (sawAny || field.length() > 0) {
+            fields.add(field.toString());
+            return fields;
+        }
+        return null;
+    }
+
+    private int read() {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        try {
+            return reader.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,162 @@
+package net.desmond.bankingApp.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.desmond.bankingApp.security.AuthPrincipal;
+import net.desmond.bankingApp.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//token buckets per client ip and, once JwtAuthenticationFilter has verified a token, per subject. every request
+//costs 1 unless bank.rate-limit.costs says otherwise ("METHOD pattern=cost", first match wins), so BCrypt logins,
+//RSA keygen and full table reads drain a bucket faster. over the limit the request is answered 429 with Retry-After
+//and never reaches the controller. buckets sit in a bounded cache, an evicted one comes back full
+@Component
+@Order(RateLimitFilter.ORDER)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final int ORDER = JwtAuthenticationFilter.ORDER + 10;
+
+    private static final long MILLI = 1000;
+
+    private record RouteCost(String method, String pattern, long cost) {
+    }
+
+    private final boolean enabled;
+    private final Cache<String, TokenBucket> buckets;
+    private final List<RouteCost> costs;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final long ipCapacity;
+    private final long ipRefill;
+    private final long subjectCapacity;
+    private final long subjectRefill;
+    private final Counter ipRejected;
+    private final Counter subjectRejected;
+
+    public RateLimitFilter(MeterRegistry meterRegistry,
+                           @Value("${bank.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${bank.rate-limit.ip.capacity:100}") long ipCapacity,
+                           @Value("${bank.rate-limit.ip.refill-per-second:20}") double ipRefillPerSecond,
+                           @Value("${bank.rate-limit.subject.capacity:100}") long subjectCapacity,
+                           @Value("${bank.rate-limit.subject.refill-per-second:20}") double subjectRefillPerSecond,
+                           @Value("${bank.rate-limit.costs:}") List<String> costs,
+                           @Value("${bank.rate-limit.max-clients:100000}") long maxClients,
+                           @Value("${bank.rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+        this.enabled = enabled;
+        this.ipCapacity = ipCapacity * MILLI;
+        this.ipRefill = Math.round(ipRefillPerSecond * MILLI);
+        this.subjectCapacity = subjectCapacity * MILLI;
+        this.subjectRefill = Math.round(subjectRefillPerSecond * MILLI);
+        if (this.ipCapacity <= 0 || this.ipRefill <= 0 || this.subjectCapacity <= 0 || this.subjectRefill <= 0) {
+            throw new IllegalArgumentException("Rate limit capacities and refill rates must be positive.");
+        }
+        this.costs = parseCosts(costs, Math.min(ipCapacity, subjectCapacity));
+        //an idle bucket that expires would have refilled anyway, as long as idle-expiry is longer than a refill
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+        this.ipRejected = rejectedCounter(meterRegistry, "ip");
+        this.subjectRejected = rejectedCounter(meterRegistry, "subject");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long cost = cost(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+        long now = System.nanoTime();
+
+        //the subject first, a refused subject then leaves the shared ip bucket alone
+        AuthPrincipal principal = (AuthPrincipal) request.getAttribute(JwtAuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+        if (principal != null) {
+            long wait = buckets.get("subject:" + principal.id(), key -> new TokenBucket(subjectCapacity, subjectRefill, now))
+                    .tryConsume(cost, now);
+            if (wait > 0) {
+                subjectRejected.increment();
+                reject(response, wait);
+                return;
+            }
+        }
+        long wait = buckets.get("ip:" + request.getRemoteAddr(), key -> new TokenBucket(ipCapacity, ipRefill, now))
+                .tryConsume(cost, now);
+        if (wait > 0) {
+            ipRejected.increment();
+            reject(response, wait);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private long cost(String method, String path) {
+        for (RouteCost route : costs) {
+            if (route.method().equals(method) && pathMatcher.match(route.pattern(), path)) {
+                return route.cost();
+            }
+        }
+        return MILLI;
+    }
+
+    //plain string body, as the controller's own error responses
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        byte[] body = "Too many requests. Please try again later.".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, -Math.floorDiv(-waitNanos, TimeUnit.SECONDS.toNanos(1)))));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static List<RouteCost> parseCosts(List<String> entries, long maxCost) {
+        List<RouteCost> costs = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] route = entry.trim().split("\\s+", 2);
+            int equals = route.length == 2 ? route[1].lastIndexOf('=') : -1;
+            if (equals < 0) {
+                throw new IllegalArgumentException("Rate limit cost must look like 'METHOD /path=cost': " + entry);
+            }
+            long cost = Long.parseLong(route[1].substring(equals + 1).trim());
+            if (cost < 1 || cost > maxCost) {
+                throw new IllegalArgumentException("Rate limit cost must be between 1 and the bucket capacity: " + entry);
+            }
+            costs.add(new RouteCost(route[0].toUpperCase(), route[1].substring(0, equals).trim(), cost * MILLI));
+        }
+        return List.copyOf(costs);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String scope) {
+        return Counter.builder("bank.rate-limit.rejected")
+                .description("Requests refused with 429 by the bucket that ran out")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+}
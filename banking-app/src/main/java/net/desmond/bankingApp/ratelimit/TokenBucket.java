@@ -0,0 +1,42 @@
+package net.desmond.bankingApp.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+//lock-free token bucket. the whole state is swapped with one CAS, a thread that loses the race recomputes from the
+//winner's state. tokens are kept in thousandths so slow refill rates still add up
+final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private record State(long milliTokens, long refilledAt) {
+    }
+
+    private final long capacity;
+    private final long refillPerSecond;
+    private final long fillNanos;
+    private final AtomicReference<State> state;
+
+    //capacity and refillPerSecond in thousandths of a token
+    TokenBucket(long capacity, long refillPerSecond, long now) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.fillNanos = -Math.floorDiv(-capacity * NANOS_PER_SECOND, refillPerSecond);
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    //0 when the tokens were taken, otherwise how many nanos until they will be there. a refused request takes nothing
+    long tryConsume(long cost, long now) {
+        while (true) {
+            State current = state.get();
+            long elapsed = Math.max(0, now - current.refilledAt());
+            long refill = elapsed >= fillNanos ? capacity : elapsed * refillPerSecond / NANOS_PER_SECOND;
+            long available = Math.min(capacity, current.milliTokens() + refill);
+            if (available < cost) {
+                return -Math.floorDiv((available - cost) * NANOS_PER_SECOND, refillPerSecond);
+            }
+            if (state.compareAndSet(current, new State(available - cost, now))) {
+                return 0;
+            }
+        }
+    }
+}
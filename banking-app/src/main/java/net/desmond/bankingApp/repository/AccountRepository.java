@@ -1,7 +1,41 @@
 package net.desmond.bankingApp.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import net.desmond.bankingApp.entity.Account;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AccountRepository extends JpaRepository<Account,Long> {
+    Optional<Account> findByEmailBlindIndex(String emailBlindIndex);
+
+    boolean existsByEmailBlindIndex(String emailBlindIndex);
+
+    List<Account> findAllByEmailBlindIndexIsNull();
+
+    @Query("SELECT a.emailBlindIndex FROM Account a WHERE a.emailBlindIndex IN :indexes")
+    List<String> findExistingEmailBlindIndexes(@Param("indexes") Collection<String> indexes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountId = :accountId")
+    Optional<Account> findByIdForUpdate(@Param("accountId") Long accountId);
+
+    //row locks are taken while walking the primary key, so in ascending id order like findByIdForUpdate one by one
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountId IN :accountIds ORDER BY a.accountId")
+    List<Account> findAllByIdForUpdate(@Param("accountIds") Collection<Long> accountIds);
+
+    //exports read off a cursor instead of one list, the caller has to close the stream inside a transaction
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a FROM Account a ORDER BY a.accountId")
+    Stream<Account> streamAll();
 }
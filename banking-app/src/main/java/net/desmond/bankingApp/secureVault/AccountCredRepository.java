@@ -5,7 +5,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface AccountCredRepository extends JpaRepository<AccountCred,Long> {
     @Query("SELECT a.rsaPrivateKey FROM AccountCred a WHERE a.id = :accountId")
     String findPrivateKeyByAccountId(@Param("accountId") Long accountId);
+
+    //each row is {id, rsaPrivateKey}
+    @Query("SELECT a.id, a.rsaPrivateKey FROM AccountCred a WHERE a.id IN :accountIds")
+    List<Object[]> findPrivateKeysByAccountIds(@Param("accountIds") Collection<Long> accountIds);
 }
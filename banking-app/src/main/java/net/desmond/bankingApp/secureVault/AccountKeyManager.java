@@ -0,0 +1,124 @@
+package net.desmond.bankingApp.secureVault;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//single entry point for getting an account's AES key, unwrapping it with the RSA private key is the costliest step of every request
+//so unwrapped keys are kept in a bounded cache, entries expire after the ttl and are dropped explicitly when an account is deleted
+@Service
+public class AccountKeyManager {
+
+    private final AccountCredRepository accountCredRepository;
+    private final Cache<Long, CachedKey> keyCache;
+    private final Counter privateKeyQueries;
+
+    //private key queries made by the current request thread, read by KeyLookupInterceptor. null outside a request
+    private static final ThreadLocal<int[]> requestQueries = new ThreadLocal<>();
+
+    public AccountKeyManager(AccountCredRepository accountCredRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${bank.key-cache.max-size:10000}") long maxSize,
+                             @Value("${bank.key-cache.ttl:10m}") Duration ttl) {
+        this.accountCredRepository = accountCredRepository;
+        this.keyCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, keyCache, "accountKeys");
+        this.privateKeyQueries = Counter.builder("bank.keys.private.key.queries")
+                .description("Queries for RSA private keys, one per key cache miss or batch of misses")
+                .register(meterRegistry);
+    }
+
+    public static void beginRequestCount() {
+        requestQueries.set(new int[1]);
+    }
+
+    public static int endRequestCount() {
+        int[] count = requestQueries.get();
+        requestQueries.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    public SecretKey getAesKey(Long accountId, String aesEncryptedKey) throws Exception {
+        CachedKey cached = keyCache.getIfPresent(accountId);
+        if (cached != null && cached.aesEncryptedKey().equals(aesEncryptedKey)) {
+            return cached.aesKey();
+        }
+
+        //decrypt key
+        countPrivateKeyQuery();
+        String base64PrivateKey = accountCredRepository.findPrivateKeyByAccountId(accountId);
+        PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(base64PrivateKey);
+        SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(aesEncryptedKey, privateKey);
+
+        keyCache.put(accountId, new CachedKey(aesEncryptedKey, aesKey));
+        return aesKey;
+    }
+
+    //resolves keys for many accounts at once, misses are loaded with a single IN query and unwrapped once per account
+    public Map<Long, SecretKey> getAesKeys(Map<Long, String> aesEncryptedKeys) throws Exception {
+        Map<Long, SecretKey> aesKeys = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : aesEncryptedKeys.entrySet()) {
+            CachedKey cached = keyCache.getIfPresent(entry.getKey());
+            if (cached != null && cached.aesEncryptedKey().equals(entry.getValue())) {
+                aesKeys.put(entry.getKey(), cached.aesKey());
+            } else {
+                missing.add(entry.getKey());
+            }
+        }
+        if (missing.isEmpty()) {
+            return aesKeys;
+        }
+
+        countPrivateKeyQuery();
+        for (Object[] row : accountCredRepository.findPrivateKeysByAccountIds(missing)) {
+            Long accountId = (Long) row[0];
+            String aesEncryptedKey = aesEncryptedKeys.get(accountId);
+            PrivateKey privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey((String) row[1]);
+            SecretKey aesKey = EncryptionUtil.decryptAESKeyWithRSA(aesEncryptedKey, privateKey);
+
+            keyCache.put(accountId, new CachedKey(aesEncryptedKey, aesKey));
+            aesKeys.put(accountId, aesKey);
+        }
+        return aesKeys;
+    }
+
+    //used at account creation, the plain AES key is already at hand so no unwrap is needed
+    public void cacheAesKey(Long accountId, String aesEncryptedKey, SecretKey aesKey) {
+        keyCache.put(accountId, new CachedKey(aesEncryptedKey, aesKey));
+    }
+
+    public void invalidate(Long accountId) {
+        keyCache.invalidate(accountId);
+    }
+
+    private void countPrivateKeyQuery() {
+        privateKeyQueries.increment();
+        int[] count = requestQueries.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    //wrapped key is kept next to the unwrapped one, a mismatch means the cached entry is stale
+    private record CachedKey(String aesEncryptedKey, SecretKey aesKey) {
+    }
+}
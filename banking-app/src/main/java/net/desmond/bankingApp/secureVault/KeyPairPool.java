@@ -0,0 +1,99 @@
+package net.desmond.bankingApp.secureVault;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//RSA keygen takes anywhere from tens to hundreds of milliseconds, so signup takes a ready pair from here instead.
+//one low priority daemon thread keeps the pool topped up and blocks while it is full, an empty pool falls back
+//to generating inline so a signup spike is only ever as slow as it was before. a size of 0 disables the pool
+@Component
+@Lazy(false)
+public class KeyPairPool {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private final BlockingQueue<KeyPair> pool;
+    private final Counter hits;
+    private final Counter misses;
+    private Thread refiller;
+
+    public KeyPairPool(MeterRegistry meterRegistry,
+                       @Value("${bank.keys.pool.size:32}") int size) {
+        this.pool = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+        Gauge.builder("bank.keys.pool.depth", this, KeyPairPool::depth)
+                .description("Ready RSA key pairs waiting in the pool")
+                .register(meterRegistry);
+        this.hits = takeCounter(meterRegistry, "hit");
+        this.misses = takeCounter(meterRegistry, "miss");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (pool == null) {
+            return;
+        }
+        refiller = new Thread(this::refill, "key-pair-pool");
+        refiller.setDaemon(true);
+        refiller.setPriority(Thread.MIN_PRIORITY);
+        refiller.start();
+    }
+
+    public KeyPair take() throws Exception {
+        KeyPair keyPair = pool == null ? null : pool.poll();
+        if (keyPair != null) {
+            hits.increment();
+            return keyPair;
+        }
+        misses.increment();
+        return KeyGeneratorUtil.generateRSAKeyPair();
+    }
+
+    public int depth() {
+        return pool == null ? 0 : pool.size();
+    }
+
+    private void refill() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                pool.put(KeyGeneratorUtil.generateRSAKeyPair());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("Key pair pool refill failed", e);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Counter takeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.keys.pool.takes")
+                .description("Key pairs handed out for new accounts, a miss was generated inline")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refiller != null) {
+            refiller.interrupt();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package net.desmond.bankingApp.security;
+
+import java.time.Instant;
+
+//the caller of a request, taken from a verified JWT by JwtAuthenticationFilter
+public record AuthPrincipal(Long id, String role, Instant expiresAt) {
+
+    public boolean isAdmin() {
+        return "admin".equals(role);
+    }
+
+    //users can only ever act on their own account, admins on the one they asked for
+    public Long accountIdFor(Long requestedId) {
+        return "user".equals(role) ? id : requestedId;
+    }
+}
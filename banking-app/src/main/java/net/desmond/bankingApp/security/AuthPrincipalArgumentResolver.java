@@ -0,0 +1,28 @@
+package net.desmond.bankingApp.security;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+//any handler parameter of type AuthPrincipal requires a valid token, the reason it is missing becomes the 401 body
+public class AuthPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object principal = webRequest.getAttribute(JwtAuthenticationFilter.PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (principal != null) {
+            return principal;
+        }
+        Object error = webRequest.getAttribute(JwtAuthenticationFilter.ERROR_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        throw new AuthenticationFailedException(error != null ? error.toString() : "Missing or malformed token.");
+    }
+}
@@ -0,0 +1,9 @@
+package net.desmond.bankingApp.security;
+
+//missing, malformed, expired or forged token on an endpoint that needs an AuthPrincipal
+public class AuthenticationFailedException extends RuntimeException {
+
+    public AuthenticationFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,97 @@
+package net.desmond.bankingApp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.desmond.bankingApp.utils.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+//verifies the bearer token once per request and leaves the result as request attributes for AuthPrincipalArgumentResolver.
+//it never rejects on its own, public endpoints (login, verify, signup) go through untouched.
+//verified tokens are cached until their own expiry so repeat calls with the same token skip the HMAC check
+@Component
+@Order(JwtAuthenticationFilter.ORDER)
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    //filters that need the principal order themselves after this
+    public static final int ORDER = 0;
+    public static final String PRINCIPAL_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".principal";
+    public static final String ERROR_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".error";
+
+    private static final String BEARER = "Bearer ";
+
+    private final Cache<String, AuthPrincipal> tokenCache;
+
+    public JwtAuthenticationFilter(MeterRegistry meterRegistry,
+                                   @Value("${bank.auth.token-cache.max-size:10000}") long maxSize) {
+        this.tokenCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, AuthPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String token, AuthPrincipal principal, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, AuthPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, AuthPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokenCache, "authTokens");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER)) {
+            authenticate(request, header.substring(BEARER.length()));
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String jwt) {
+        AuthPrincipal principal = tokenCache.getIfPresent(jwt);
+        if (principal == null) {
+            try {
+                Claims claims = JwtUtil.parseClaims(jwt);
+                principal = new AuthPrincipal(Long.parseLong(claims.getSubject()), claims.get("role", String.class),
+                        claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+            } catch (ExpiredJwtException e) {
+                request.setAttribute(ERROR_ATTRIBUTE, "Session expired. Please login again.");
+                return;
+            } catch (JwtException | IllegalArgumentException e) {
+                request.setAttribute(ERROR_ATTRIBUTE, "Invalid token. Please login again.");
+                return;
+            }
+            //a token without expiry is still accepted, just never cached
+            if (principal.expiresAt() != null) {
+                tokenCache.put(jwt, principal);
+            }
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+    }
+}
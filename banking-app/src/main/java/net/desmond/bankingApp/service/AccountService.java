@@ -1,19 +1,24 @@
 package net.desmond.bankingApp.service;
 
 import net.desmond.bankingApp.dto.AccountDto;
+import net.desmond.bankingApp.transactions.BatchTransferLeg;
+import net.desmond.bankingApp.transactions.BatchTransferResult;
 import net.desmond.bankingApp.transactions.TransactionDto;
+import net.desmond.bankingApp.transactions.TransactionFilter;
+import net.desmond.bankingApp.transactions.TransactionPage;
 
 import java.util.List;
 import java.util.Map;
 
+//all amounts are in minor units, see MoneyUtil
 public interface AccountService {
     AccountDto createAccount(Map<String, Object> requestData) throws Exception;
 
     AccountDto getAccountById(Long id) throws Exception;
 
-    AccountDto depositAmount(Long id, double amount) throws Exception;
+    AccountDto depositAmount(Long id, long amount) throws Exception;
 
-    AccountDto withdrawAmount(Long id, double amount) throws Exception;
+    AccountDto withdrawAmount(Long id, long amount) throws Exception;
 
     List<AccountDto> getAllAccounts() throws Exception;
 
@@ -21,19 +26,18 @@ public interface AccountService {
     //should check if any pending transaction exist or not
     //also details of deleted account should be preserved, clearer flow would be to set verified -> deleted, rather than deleting from db
 
-    List<TransactionDto> getAllTransactions() throws Exception;
-
     List<TransactionDto> getAllTransactionsId(Long id) throws Exception;
 
     List<TransactionDto> getAllTransactionsSent(Long id) throws Exception;
 
     List<TransactionDto> getAllTransactionsReceived(Long id) throws Exception;
 
-    AccountDto sendToAccount(Long senderId, Long receiverId, Double amount) throws Exception;
+    AccountDto sendToAccount(Long senderId, Long receiverId, long amount) throws Exception;
 
-    void requestFromAccount(Long receiverId, Long senderId, Double amount) throws Exception;
+    //one sender, many receivers, in one database transaction. atomic rejects the whole batch, otherwise legs fail on their own
+    BatchTransferResult sendToMany(Long senderId, List<BatchTransferLeg> legs, boolean atomic) throws Exception;
 
-    List<TransactionDto> getAllPendingTransactions() throws Exception;
+    void requestFromAccount(Long receiverId, Long senderId, long amount) throws Exception;
 
     List<TransactionDto> getUserPendingTransactions(Long id) throws Exception;
 
@@ -48,7 +52,7 @@ public interface AccountService {
 
     boolean matchPassword(Long id, String pass) throws Exception;
 
-    void deleteTransactionById(Long transId);
+    void deleteTransactionById(Long transId) throws Exception;
 
     Long findIdByEmail(String email) throws Exception;
 
@@ -58,5 +62,26 @@ public interface AccountService {
 
     void setTemporaryPassword(Map<String, Object> request) throws Exception;
     //anyone at login page can set TempPassword, not good flow
+
+    void changeEmail(Long id, String newEmail) throws Exception;
+
+    //keyset paged variants of the transaction lists, cursor null means start from the newest
+    TransactionPage getAllTransactions(Long cursor, Integer size) throws Exception;
+
+    TransactionPage getAllTransactionsId(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage getAllTransactionsSent(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage getAllTransactionsReceived(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage getAllPendingTransactions(Long cursor, Integer size) throws Exception;
+
+    TransactionPage getUserPendingTransactions(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage getPendingSentTransactions(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage getPendingReceivedTransactions(Long id, Long cursor, Integer size) throws Exception;
+
+    TransactionPage searchTransactions(Long id, TransactionFilter filter, Long cursor, Integer size) throws Exception;
 }
 
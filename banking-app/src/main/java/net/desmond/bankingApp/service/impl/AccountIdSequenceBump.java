@@ -0,0 +1,56 @@
+package net.desmond.bankingApp.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import net.desmond.bankingApp.entity.Account;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+//account ids used to come from an auto increment column, the sequence that replaced it starts at 1.
+//before anything can allocate from it, move it past the highest existing id. databases without sequences
+//(MySQL) get a one row table that Hibernate reads and bumps, the others a native sequence.
+//runs before the web server accepts requests, and only ever moves the sequence forward
+@Component
+@Lazy(false)
+public class AccountIdSequenceBump {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountIdSequenceBump.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public AccountIdSequenceBump(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @PostConstruct
+    public void bump() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(account_id) FROM accounts", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        //one whole allocation block of headroom, whichever end of the block the optimizer hands out first
+        long target = maxId + Account.ID_ALLOCATION_SIZE + 1;
+
+        if (dialect.getSequenceSupport().supportsSequences()) {
+            Long next = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(Account.ID_SEQUENCE), Long.class);
+            if (next != null && next <= maxId) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + Account.ID_SEQUENCE + " RESTART WITH " + target);
+                log.info("Moved {} from {} to {}", Account.ID_SEQUENCE, next, target);
+            }
+        } else {
+            int updated = jdbcTemplate.update("UPDATE " + Account.ID_SEQUENCE + " SET next_val = ? WHERE next_val <= ?",
+                    target, maxId);
+            if (updated > 0) {
+                log.info("Moved {} to {}", Account.ID_SEQUENCE, target);
+            }
+        }
+    }
+}
@@ -3,20 +3,37 @@ package net.desmond.bankingApp.service.impl;
 import net.desmond.bankingApp.dto.AccountDto;
 import net.desmond.bankingApp.entity.Account;
 import net.desmond.bankingApp.entity.AccountCred;
+import net.desmond.bankingApp.idempotency.IdempotencyService;
+import net.desmond.bankingApp.insights.MonthlyAggregateService;
+import net.desmond.bankingApp.ledger.LedgerService;
+import net.desmond.bankingApp.mapper.LazyAccount;
 import net.desmond.bankingApp.mapper.Mapper;
 import net.desmond.bankingApp.repository.AccountRepository;
 import net.desmond.bankingApp.secureVault.AccountCredRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.secureVault.KeyPairPool;
 import net.desmond.bankingApp.service.AccountService;
+import net.desmond.bankingApp.statements.StatementService;
+import net.desmond.bankingApp.transactions.BatchTransferLeg;
+import net.desmond.bankingApp.transactions.BatchTransferResult;
 import net.desmond.bankingApp.transactions.Transaction;
 import net.desmond.bankingApp.transactions.TransactionDto;
+import net.desmond.bankingApp.transactions.TransactionFilter;
+import net.desmond.bankingApp.transactions.TransactionPage;
 import net.desmond.bankingApp.transactions.TransactionRepository;
+import net.desmond.bankingApp.transactions.TransactionSpecifications;
+import net.desmond.bankingApp.utils.BlindIndexService;
 import net.desmond.bankingApp.utils.EncryptionUtil;
 import net.desmond.bankingApp.utils.HashingUtil;
 import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import net.desmond.bankingApp.utils.MoneyUtil;
 import net.desmond.bankingApp.utils.EmailService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.crypto.SecretKey;
@@ -27,8 +44,12 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -38,20 +59,51 @@ public class AccountServiceImpl implements AccountService {
     private AccountRepository accountRepository;
     private AccountCredRepository accountCredRepository; //can be considered the only dependency for decrypting everything, as without this whole data cannot be accessed.
     private TransactionRepository transactionRepository;
+    private AccountKeyManager accountKeyManager;
+    private TransferEngine transferEngine;
+    private KeyPairPool keyPairPool;
+    private LedgerService ledgerService;
+    private StatementService statementService;
+    private MonthlyAggregateService monthlyAggregateService;
 
     @Autowired
     private EmailService emailService;
 
-    public AccountServiceImpl(AccountRepository accountRepository, AccountCredRepository accountCredRepository, TransactionRepository transactionRepository) {
+    @Autowired
+    private BlindIndexService blindIndexService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    public AccountServiceImpl(AccountRepository accountRepository, AccountCredRepository accountCredRepository, TransactionRepository transactionRepository, AccountKeyManager accountKeyManager, TransferEngine transferEngine, KeyPairPool keyPairPool, LedgerService ledgerService, StatementService statementService, MonthlyAggregateService monthlyAggregateService) {
         this.accountRepository = accountRepository;
         this.accountCredRepository=accountCredRepository;
         this.transactionRepository = transactionRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.transferEngine = transferEngine;
+        this.keyPairPool = keyPairPool;
+        this.ledgerService = ledgerService;
+        this.statementService = statementService;
+        this.monthlyAggregateService = monthlyAggregateService;
     }
 
     @Value("${BACKEND_URL}")
     private String backendUrl;
 
+    @Value("${bank.transactions.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bank.transactions.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${bank.transfer.batch.max-legs:5000}")
+    private int maxBatchLegs;
+
+    private static final int LOCK_CHUNK_SIZE = 500;
+
+    //account rows and the queued verification mail commit together
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public AccountDto createAccount(Map<String, Object> requestData) throws Exception { //map of data from user, converted to accountDto
         String accountHolderName = requestData.get("accountHolderName").toString().trim();
         String balance = requestData.get("balance").toString().trim();
@@ -60,17 +112,14 @@ public class AccountServiceImpl implements AccountService {
         String role = requestData.get("accountHolderRole").toString().toLowerCase().trim();
 
         //email check
-        List<AccountDto> allAccounts = getAllAccounts();
-        boolean emailExists = allAccounts.stream()
-                .anyMatch(acc -> acc.getAccountHolderEmailAddress().equals(accountHolderEmailAddress));
-
-        if (emailExists) {
+        String emailBlindIndex = blindIndexService.emailIndex(accountHolderEmailAddress);
+        if (accountRepository.existsByEmailBlindIndex(emailBlindIndex)) {
             throw new IllegalArgumentException("Account with this Email already exists.");
         }
 
         AccountDto accountDto = new AccountDto();
         accountDto.setAccountHolderName(accountHolderName);
-        accountDto.setBalance(Double.valueOf(balance));
+        accountDto.setBalance(MoneyUtil.parse(balance));
         accountDto.setAccountHolderAddress(accountHolderAddress);
         accountDto.setAccountHolderEmailAddress(accountHolderEmailAddress);
 
@@ -80,7 +129,7 @@ public class AccountServiceImpl implements AccountService {
 
         //key generation
         SecretKey aesKey = KeyGeneratorUtil.generateAESKey();
-        KeyPair rsaKeyPair = KeyGeneratorUtil.generateRSAKeyPair();
+        KeyPair rsaKeyPair = keyPairPool.take();
         PublicKey publicKey = rsaKeyPair.getPublic();
         PrivateKey privateKey = rsaKeyPair.getPrivate();
 
@@ -88,7 +137,9 @@ public class AccountServiceImpl implements AccountService {
         account.setAesEncryptedKey(encryptedAesKey);
         account.setRsaPublicKey(KeyGeneratorUtil.encodeKeyToBase64(publicKey));
         account.setRole(role);
-        account.setVerificationStatus(UUID.randomUUID().toString());
+        String verificationToken = UUID.randomUUID().toString();
+        account.setVerificationStatus(verificationToken);
+        account.setEmailBlindIndex(emailBlindIndex);
         Account savedAccount = accountRepository.save(account);
         //acc saved unencrypted
 
@@ -101,15 +152,15 @@ public class AccountServiceImpl implements AccountService {
         accountCred.setHashedUserPassword(HashingUtil.hashPassword(password));
         accountCred.setRsaPrivateKey(KeyGeneratorUtil.encodeKeyToBase64(privateKey));
         accountCredRepository.save(accountCred);
+        accountKeyManager.cacheAesKey(savedAccount.getAccountId(), encryptedAesKey, aesKey);
 
         //encryption in mapper class
-        Account encryptedAccount = Mapper.mapToEncryptedAccount(savedAccount,accountCredRepository);
+        Account encryptedAccount = Mapper.mapToEncryptedAccount(savedAccount,accountKeyManager);
         Account savedEncryptedAccount = accountRepository.save(encryptedAccount);
 
         //send verification with unencrypted token
-        Account decrypted = Mapper.mapToDecryptedAccount(encryptedAccount,accountCredRepository);
-        String link = backendUrl+"/bank/verify?id=" + decrypted.getAccountId() + "&token=" +  URLEncoder.encode(decrypted.getVerificationStatus(), StandardCharsets.UTF_8);
-        emailService.sendVerificationEmail(decrypted.getAccountHolderEmailAddress(),
+        String link = backendUrl+"/bank/verify?id=" + saved.getAccountId() + "&token=" +  URLEncoder.encode(verificationToken, StandardCharsets.UTF_8);
+        emailService.sendVerificationEmail(saved.getAccountHolderEmailAddress(),
                 "Silverstone: Email Verification",
                 "\nClick this link to verify your email: " + link+"\nfrom Silverstone Support Team");
 
@@ -121,273 +172,319 @@ public class AccountServiceImpl implements AccountService {
         Account foundAccount = accountRepository.findById(id)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
 
-        Account decryptedAccount = Mapper.mapToDecryptedAccount(foundAccount,accountCredRepository);
-        return Mapper.mapToAccountDto(decryptedAccount);
+        return toDto(foundAccount, ledgerService.balance(foundAccount));
     }
 
     @Override
-    public AccountDto depositAmount(Long id, double amount) throws Exception {
-        Account foundAccount = accountRepository.findById(id)
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
+    public AccountDto depositAmount(Long id, long amount) throws Exception {
+        return transferEngine.execute(List.of(id), () -> {
+            Account foundAccount = accountRepository.findByIdForUpdate(id)
+                    .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
 
-        Account decryptedAccount = Mapper.mapToDecryptedAccount(foundAccount,accountCredRepository);
-        double curAmount = Double.valueOf(decryptedAccount.getBalance());
-        curAmount+=amount;
-        decryptedAccount.setBalance(String.valueOf(curAmount));
+            long curAmount = Math.addExact(ledgerService.balance(foundAccount), amount);
 
-        Account encryptedAccount = Mapper.mapToEncryptedAccount(decryptedAccount,accountCredRepository);
+            Transaction transaction =  new Transaction(id,id,amount,"deposit",foundAccount.getAesEncryptedKey());
+            saveHistory(transaction);
+            ledgerService.post(List.of(LedgerService.credit(foundAccount, amount, null, "deposit")));
 
-        Transaction transaction =  new Transaction(id,id,String.valueOf(amount),"deposit",encryptedAccount.getAesEncryptedKey());
-        transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction,accountCredRepository));
-
-        return Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(accountRepository.save(encryptedAccount),accountCredRepository));
+            return toDto(foundAccount, curAmount);
+        });
     }
 
     @Override
-    public AccountDto withdrawAmount(Long id, double amount) throws Exception {
-        Account foundAccount = accountRepository.findById(id)
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
-
-        Account decryptedAccount = Mapper.mapToDecryptedAccount(foundAccount,accountCredRepository);
-        double curAmount = Double.valueOf(decryptedAccount.getBalance());
+    public AccountDto withdrawAmount(Long id, long amount) throws Exception {
+        return transferEngine.execute(List.of(id), () -> {
+            Account foundAccount = accountRepository.findByIdForUpdate(id)
+                    .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
 
-        if (curAmount < amount) {
-            Transaction transaction =  new Transaction(id,id,String.valueOf(amount),"withdraw failed", foundAccount.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction,accountCredRepository));
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
-        }else {
-            curAmount-=amount;
-            decryptedAccount.setBalance(String.valueOf(curAmount));
+            long curAmount = ledgerService.balance(foundAccount);
 
-            Account encryptedAccount = Mapper.mapToEncryptedAccount(decryptedAccount,accountCredRepository);
+            if (curAmount < amount) {
+                Transaction transaction =  new Transaction(id,id,amount,"withdraw failed", foundAccount.getAesEncryptedKey());
+                saveHistory(transaction);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
+            }else {
+                curAmount = Math.subtractExact(curAmount, amount);
 
-            Transaction transaction =  new Transaction(id,id,String.valueOf(amount),"withdraw",encryptedAccount.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction,accountCredRepository));
+                Transaction transaction =  new Transaction(id,id,amount,"withdraw",foundAccount.getAesEncryptedKey());
+                saveHistory(transaction);
+                ledgerService.post(List.of(LedgerService.debit(foundAccount, amount, null, "withdraw")));
 
-            return Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(accountRepository.save(encryptedAccount),accountCredRepository));
-        }
+                return toDto(foundAccount, curAmount);
+            }
+        });
     }
 
     @Override
     public List<AccountDto> getAllAccounts() throws Exception {
         List<Account> accounts = accountRepository.findAll();
+        Map<Long, Long> balances = ledgerService.balances(accounts);
         List<AccountDto> accountDtos = new ArrayList<>();
         for(Account ac : accounts){
-            accountDtos.add(Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(ac,accountCredRepository)));
+            accountDtos.add(toDto(ac, balances.get(ac.getAccountId())));
         }
         return accountDtos;
     }
 
+    //the rows keyed by the account go with it in one transaction, its transaction_history rows stay for the counterparties
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void deleteAccountById(Long id) {
-        Account foundAccount = accountRepository.findById(id)
+        Account foundAccount = accountRepository.findByIdForUpdate(id)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
 
+        ledgerService.deleteAccount(id);
+        monthlyAggregateService.deleteAccount(id);
+        idempotencyService.forgetOwner(id);
+        statementService.evictAccount(id);
         accountRepository.deleteById(id);
         accountCredRepository.deleteById(id);
-    }
-
-    @Override
-    public List<TransactionDto> getAllTransactions() throws Exception {
-        List<Transaction> transactions = transactionRepository.findAll();
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        accountKeyManager.invalidate(id);
     }
 
     @Override
     public List<TransactionDto> getAllTransactionsId(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findTransactionById(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
     }
 
     @Override
     public List<TransactionDto> getAllTransactionsSent(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findAllSent(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
     }
 
     @Override
     public List<TransactionDto> getAllTransactionsReceived(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findAllReceived(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
+    }
+
+    @Override
+    public AccountDto sendToAccount(Long senderId, Long receiverId, long amount) throws Exception {
+        if (senderId.equals(receiverId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot send money to the same account.");
         }
-        return decryptedTransactions;
+
+        return transferEngine.execute(List.of(senderId, receiverId), () -> {
+            Map<Long, Account> accounts = lockAccounts(senderId, receiverId);
+            Account sender = Optional.ofNullable(accounts.get(senderId))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
+            Account receiver = Optional.ofNullable(accounts.get(receiverId))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
+
+            long curAmountSender = ledgerService.balance(sender);
+
+            if (curAmountSender < amount) {
+                Transaction transaction = new Transaction(senderId, receiverId, amount, "failed", sender.getAesEncryptedKey());
+                saveHistory(transaction);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
+            } else {
+                curAmountSender = Math.subtractExact(curAmountSender, amount);
+
+                Transaction transaction = new Transaction(senderId, receiverId, amount, "success", sender.getAesEncryptedKey());
+                saveHistory(transaction);
+                ledgerService.post(LedgerService.transfer(sender, receiver, amount));
+
+                return toDto(sender, curAmountSender);
+            }
+        });
     }
 
+    //payroll style payout, the sender balance is derived once however many legs there are and only ledger entries and
+    //history rows are written, no account row is rewritten.
+    //atomic: every leg is validated first and the whole batch is rejected if one leg is bad or the total is not covered.
+    //best effort: legs are applied in request order, a leg that is invalid or no longer covered fails on its own
     @Override
-    public AccountDto sendToAccount(Long senderId, Long receiverId, Double amount) throws Exception {
-        Account sender = accountRepository.findById(senderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
-        Account receiver = accountRepository.findById(receiverId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
+    public BatchTransferResult sendToMany(Long senderId, List<BatchTransferLeg> legs, boolean atomic) throws Exception {
+        if (legs.isEmpty()) {
+            throw new IllegalArgumentException("No transfers given.");
+        }
+        if (legs.size() > maxBatchLegs) {
+            throw new IllegalArgumentException("At most " + maxBatchLegs + " transfers per batch.");
+        }
 
-        Account decryptedSenderAccount = Mapper.mapToDecryptedAccount(sender, accountCredRepository);
-        Account decryptedReceiverAccount = Mapper.mapToDecryptedAccount(receiver, accountCredRepository);
-        double curAmountSender = Double.valueOf(decryptedSenderAccount.getBalance());
-        double curAmountReceiver = Double.valueOf(decryptedReceiverAccount.getBalance());
+        TreeSet<Long> accountIds = new TreeSet<>();
+        accountIds.add(senderId);
+        for (BatchTransferLeg leg : legs) {
+            if (leg.receiverId() != null) {
+                accountIds.add(leg.receiverId());
+            }
+        }
 
-        if (curAmountSender < amount) {
-            Transaction transaction = new Transaction(senderId, receiverId, String.valueOf(amount), "failed", sender.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction, accountCredRepository));
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
-        } else {
-            curAmountSender -= amount;
-            curAmountReceiver += amount;
-            decryptedSenderAccount.setBalance(String.valueOf(curAmountSender));
-            decryptedReceiverAccount.setBalance(String.valueOf(curAmountReceiver));
+        return transferEngine.execute(accountIds, () -> {
+            Map<Long, Account> locked = lockAll(accountIds);
+            Account sender = Optional.ofNullable(locked.get(senderId))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
+            String senderKey = sender.getAesEncryptedKey();
+
+            String[] errors = new String[legs.size()];
+            long total = 0;
+            for (int i = 0; i < legs.size(); i++) {
+                BatchTransferLeg leg = legs.get(i);
+                if (leg.amount() <= 0) {
+                    errors[i] = "Amount must be positive.";
+                } else if (senderId.equals(leg.receiverId())) {
+                    errors[i] = "Cannot send money to the same account.";
+                } else if (!locked.containsKey(leg.receiverId())) {
+                    errors[i] = "Receiver Account does not exist.";
+                }
+                if (errors[i] != null && atomic) {
+                    HttpStatus status = errors[i].startsWith("Receiver") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+                    throw new ResponseStatusException(status, "Transfer " + (i + 1) + ": " + errors[i]);
+                }
+                total = Math.addExact(total, Math.max(leg.amount(), 0));
+            }
 
-            Account encryptedSenderAccount = Mapper.mapToEncryptedAccount(decryptedSenderAccount, accountCredRepository);
-            Account encryptedReceiverAccount = Mapper.mapToEncryptedAccount(decryptedReceiverAccount, accountCredRepository);
+            long senderBalance = ledgerService.balance(sender);
+            List<Transaction> history = new ArrayList<>(legs.size());
+            if (atomic && senderBalance < total) {
+                //same as a single transfer, every leg is recorded as failed and nothing moves
+                for (BatchTransferLeg leg : legs) {
+                    history.add(new Transaction(senderId, leg.receiverId(), leg.amount(), "failed", senderKey));
+                }
+                saveHistory(history);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
+            }
+
+            List<LedgerService.Posting> postings = new ArrayList<>(legs.size() * 2);
+            List<BatchTransferResult.Leg> results = new ArrayList<>(legs.size());
+            for (int i = 0; i < legs.size(); i++) {
+                BatchTransferLeg leg = legs.get(i);
+                //invalid legs never reach the history, like a single transfer to a missing account
+                if (errors[i] == null) {
+                    if (senderBalance < leg.amount()) {
+                        errors[i] = "Insufficient Balance.";
+                    } else {
+                        senderBalance = Math.subtractExact(senderBalance, leg.amount());
+                        postings.addAll(LedgerService.transfer(sender, locked.get(leg.receiverId()), leg.amount()));
+                    }
+                    String status = errors[i] == null ? "success" : "failed";
+                    history.add(new Transaction(senderId, leg.receiverId(), leg.amount(), status, senderKey));
+                }
+                results.add(new BatchTransferResult.Leg(i, leg.receiverId(), leg.amount(),
+                        errors[i] == null ? BatchTransferResult.SUCCESS : BatchTransferResult.FAILED, errors[i]));
+            }
+
+            ledgerService.post(postings);
+            saveHistory(history);
 
-            Transaction transaction = new Transaction(senderId, receiverId, String.valueOf(amount), "success", encryptedSenderAccount.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction, accountCredRepository));
+            return BatchTransferResult.of(toDto(sender, senderBalance), results);
+        });
+    }
 
-            Account savedEncryptedAccount = accountRepository.save(encryptedSenderAccount);
-            accountRepository.save(encryptedReceiverAccount);
-            return Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(savedEncryptedAccount, accountCredRepository));
+    //locks the rows in ascending id order a chunk at a time
+    private Map<Long, Account> lockAll(TreeSet<Long> accountIds) {
+        Map<Long, Account> locked = new HashMap<>();
+        List<Long> ids = new ArrayList<>(accountIds);
+        for (int start = 0; start < ids.size(); start += LOCK_CHUNK_SIZE) {
+            for (Account account : accountRepository.findAllByIdForUpdate(ids.subList(start, Math.min(start + LOCK_CHUNK_SIZE, ids.size())))) {
+                locked.put(account.getAccountId(), account);
+            }
         }
+        return locked;
     }
 
     @Override
-    public void requestFromAccount(Long receiverId, Long senderId, Double amount) throws Exception{
+    @Transactional(rollbackFor = Exception.class)
+    public void requestFromAccount(Long receiverId, Long senderId, long amount) throws Exception{
         Account receiver = accountRepository.findById(receiverId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
         Account sender = accountRepository.findById(senderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
 
-        Transaction transaction = new Transaction(senderId, receiverId, String.valueOf(amount), "pending", sender.getAesEncryptedKey());
-        transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction, accountCredRepository));
-    }
-
-    @Override
-    public List<TransactionDto> getAllPendingTransactions() throws Exception {
-        List<Transaction> transactions = transactionRepository.findAllPending();
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        Transaction transaction = new Transaction(senderId, receiverId, amount, "pending", sender.getAesEncryptedKey());
+        saveHistory(transaction);
     }
 
     @Override
     public List<TransactionDto> getUserPendingTransactions(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findAllPendingByUser(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
     }
 
     @Override
     public List<TransactionDto> getPendingSentTransactions(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findAllPendingSentByUser(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
     }
 
     @Override
     public List<TransactionDto> getPendingReceivedTransactions(Long id) throws Exception {
         List<Transaction> transactions = transactionRepository.findAllPendingReceivedByUser(id);
-        List<TransactionDto> decryptedTransactions = new ArrayList<>();
-        for(Transaction tr : transactions){
-            decryptedTransactions.add(Mapper.mapToTransactionDto
-                    (Mapper.mapToDecryptedTransaction(tr,accountCredRepository)));
-        }
-        return decryptedTransactions;
+        return Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager);
     }
 
     @Override
     public AccountDto executePendingTransaction(Long transId) throws Exception {
-        Transaction transaction = transactionRepository.findById(transId)
+        Transaction pending = transactionRepository.findById(transId)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction does not exist."));
 
-        if (!transaction.getStatus().equals("pending")) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction is not pending.");
-        }
+        return transferEngine.execute(List.of(pending.getSenderId(), pending.getReceiverId()), () -> {
+            //re-read under lock, a concurrent execute or decline may have consumed it already
+            Transaction transaction = transactionRepository.findByIdForUpdate(transId)
+                    .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction does not exist."));
 
-        Account receiver = accountRepository.findById(transaction.getReceiverId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
-        Account sender = accountRepository.findById(transaction.getSenderId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
+            if (!transaction.getStatus().equals("pending")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction is not pending.");
+            }
 
-        Account decryptedReceiver = Mapper.mapToDecryptedAccount(receiver, accountCredRepository);
-        Account decryptedSender = Mapper.mapToDecryptedAccount(sender, accountCredRepository);
-        Transaction decryptedTransaction = Mapper.mapToDecryptedTransaction(transaction,accountCredRepository);
-
-        double receiverBalance = Double.valueOf(decryptedReceiver.getBalance());
-        double senderBalance = Double.valueOf(decryptedSender.getBalance());
-        double amount = Double.valueOf(decryptedTransaction.getAmount());
-
-        if(amount>senderBalance){
-            Transaction failed = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), String.valueOf(amount), "failed", sender.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(failed, accountCredRepository));
-            transactionRepository.deleteById(transId);
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
-        }else{
-            senderBalance -= amount;
-            receiverBalance += amount;
-            decryptedSender.setBalance(String.valueOf(senderBalance));
-            decryptedReceiver.setBalance(String.valueOf(receiverBalance));
-
-            Account encryptedSenderAccount = Mapper.mapToEncryptedAccount(decryptedSender, accountCredRepository);
-            Account encryptedReceiverAccount = Mapper.mapToEncryptedAccount(decryptedReceiver, accountCredRepository);
-
-            Transaction success = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), String.valueOf(amount), "success", encryptedSenderAccount.getAesEncryptedKey());
-            transactionRepository.save(Mapper.mapToEncryptedTransaction(success, accountCredRepository));
-            transactionRepository.deleteById(transId);
-
-            Account savedEncryptedAccount = accountRepository.save(encryptedSenderAccount);
-            accountRepository.save(encryptedReceiverAccount);
-            return Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(savedEncryptedAccount, accountCredRepository));
-        }
+            Map<Long, Account> accounts = lockAccounts(transaction.getSenderId(), transaction.getReceiverId());
+            Account receiver = Optional.ofNullable(accounts.get(transaction.getReceiverId()))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
+            Account sender = Optional.ofNullable(accounts.get(transaction.getSenderId()))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
+
+            Transaction decryptedTransaction = Mapper.mapToDecryptedTransaction(transaction,accountKeyManager);
+
+            long senderBalance = ledgerService.balance(sender);
+            long amount = decryptedTransaction.getAmountMinor();
+
+            if(amount>senderBalance){
+                Transaction failed = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), amount, "failed", sender.getAesEncryptedKey());
+                saveHistory(failed);
+                deleteHistory(decryptedTransaction);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient Balance.");
+            }else{
+                senderBalance = Math.subtractExact(senderBalance, amount);
+
+                Transaction success = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), amount, "success", sender.getAesEncryptedKey());
+                saveHistory(success);
+                deleteHistory(decryptedTransaction);
+                ledgerService.post(LedgerService.transfer(sender, receiver, amount));
+
+                return toDto(sender, senderBalance);
+            }
+        });
     }
 
     @Override
     public AccountDto declinePendingTransaction(Long transId) throws Exception {
-        Transaction transaction = transactionRepository.findById(transId)
+        Transaction pending = transactionRepository.findById(transId)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction does not exist."));
 
-        if (!transaction.getStatus().equals("pending")) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction is not pending.");
-        }
+        return transferEngine.execute(List.of(pending.getSenderId(), pending.getReceiverId()), () -> {
+            Transaction transaction = transactionRepository.findByIdForUpdate(transId)
+                    .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction does not exist."));
 
-        Account receiver = accountRepository.findById(transaction.getReceiverId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
-        Account sender = accountRepository.findById(transaction.getSenderId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
+            if (!transaction.getStatus().equals("pending")) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction is not pending.");
+            }
 
-        Transaction decryptedTransaction = Mapper.mapToDecryptedTransaction(transaction,accountCredRepository);
-        double amount = Double.valueOf(decryptedTransaction.getAmount());
+            Account receiver = accountRepository.findById(transaction.getReceiverId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Receiver Account does not exist."));
+            Account sender = accountRepository.findById(transaction.getSenderId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sender Account does not exist."));
 
-        Transaction declined = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), String.valueOf(amount), "declined", sender.getAesEncryptedKey());
-        transactionRepository.save(Mapper.mapToEncryptedTransaction(declined, accountCredRepository));
-        transactionRepository.deleteById(transId);
+            Transaction decryptedTransaction = Mapper.mapToDecryptedTransaction(transaction,accountKeyManager);
+            long amount = decryptedTransaction.getAmountMinor();
 
-        return Mapper.mapToAccountDto(Mapper.mapToDecryptedAccount(sender, accountCredRepository));
+            Transaction declined = new Transaction(transaction.getSenderId(), transaction.getReceiverId(), amount, "declined", sender.getAesEncryptedKey());
+            saveHistory(declined);
+            deleteHistory(decryptedTransaction);
+
+            return toDto(sender, ledgerService.balance(sender));
+        });
     }
 
     @Override
@@ -399,23 +496,20 @@ public class AccountServiceImpl implements AccountService {
     }
 
     @Override
-    public void deleteTransactionById(Long transId) {
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteTransactionById(Long transId) throws Exception {
         Transaction foundTrans = transactionRepository.findById(transId)
                 .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction does not exist."));
 
-        transactionRepository.deleteById(transId);
+        statementService.evict(foundTrans);
+        deleteHistory(Mapper.mapToDecryptedTransaction(foundTrans, accountKeyManager));
     }
 
     @Override
     public Long findIdByEmail(String email) throws Exception {
-        List<AccountDto> allAccounts = getAllAccounts();
-
-        for (AccountDto dto : allAccounts) {
-            if (dto.getAccountHolderEmailAddress().equalsIgnoreCase(email.trim())) {
-                return dto.getAccountId();
-            }
-        }
-        return null;
+        return accountRepository.findByEmailBlindIndex(blindIndexService.emailIndex(email))
+                .map(Account::getAccountId)
+                .orElse(null);
     }
 
     @Override
@@ -423,9 +517,7 @@ public class AccountServiceImpl implements AccountService {
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found."));
 
-        Account decrypted = Mapper.mapToDecryptedAccount(account,accountCredRepository);
-
-        return decrypted.getVerificationStatus().equals(token);
+        return Mapper.mapToLazyAccount(account,accountKeyManager).getVerificationStatus().equals(token);
     }
 
     @Override
@@ -433,13 +525,13 @@ public class AccountServiceImpl implements AccountService {
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found."));
 
-        Account decrypted = Mapper.mapToDecryptedAccount(account,accountCredRepository);
-        decrypted.setVerificationStatus("verified");
-        Account encrypted = Mapper.mapToEncryptedAccount(decrypted,accountCredRepository);
-        accountRepository.save(encrypted);
+        LazyAccount lazy = Mapper.mapToLazyAccount(account,accountKeyManager);
+        lazy.setVerificationStatus("verified");
+        accountRepository.save(lazy.writeBack());
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void setTemporaryPassword(Map<String, Object> request) throws Exception {
         Long id;
 
@@ -452,9 +544,9 @@ public class AccountServiceImpl implements AccountService {
 
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
-        Account decrypted = Mapper.mapToDecryptedAccount(account,accountCredRepository);
+        LazyAccount lazy = Mapper.mapToLazyAccount(account,accountKeyManager);
 
-        if (!"verified".equalsIgnoreCase(decrypted.getVerificationStatus())) {
+        if (!"verified".equalsIgnoreCase(lazy.getVerificationStatus())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Account is unverified. Please verify account first.");
         }
 
@@ -464,12 +556,149 @@ public class AccountServiceImpl implements AccountService {
         accountCred.setHashedUserPassword(HashingUtil.hashPassword(tempPassword));
         accountCredRepository.save(accountCred);
 
-        emailService.sendVerificationEmail(decrypted.getAccountHolderEmailAddress(),
+        emailService.sendVerificationEmail(lazy.getAccountHolderEmailAddress(),
                 "Silverstone - Temporary Password", "\nYour temporary password is: " + tempPassword +
                 "\nUse this to log in and update your password immediately.\n\nfrom Silverstone Support Team");
 
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void changeEmail(Long id, String newEmail) throws Exception {
+        Account account = accountRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
+
+        LazyAccount lazy = Mapper.mapToLazyAccount(account, accountKeyManager);
+        lazy.setAccountHolderEmailAddress(newEmail);
+        account.setEmailBlindIndex(blindIndexService.emailIndex(newEmail));
+
+        String verificationToken = UUID.randomUUID().toString();
+        lazy.setVerificationStatus(verificationToken); // unverified
+
+        String link = backendUrl+"/bank/verify?id=" +lazy.getAccountId()
+                + "&token=" + URLEncoder.encode(verificationToken, StandardCharsets.UTF_8);
+
+        emailService.sendVerificationEmail(
+                newEmail,
+                "Silverstone: Email Verification",
+                "\nClick this link to verify your email: " + link + "\n\nFrom Silverstone Support Team"
+        );
+
+        accountRepository.save(lazy.writeBack());
+    }
+
+    @Override
+    public TransactionPage getAllTransactions(Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findPage(cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getAllTransactionsId(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findTransactionPageById(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getAllTransactionsSent(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findSentPage(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getAllTransactionsReceived(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findReceivedPage(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getAllPendingTransactions(Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findPendingPage(cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getUserPendingTransactions(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findPendingPageByUser(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getPendingSentTransactions(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findPendingSentPageByUser(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage getPendingReceivedTransactions(Long id, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        return toPage(transactionRepository.findPendingReceivedPageByUser(id, cursorOrStart(cursor), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Override
+    public TransactionPage searchTransactions(Long id, TransactionFilter filter, Long cursor, Integer size) throws Exception {
+        int pageSize = pageSize(size);
+        List<Transaction> transactions = transactionRepository.findBy(
+                TransactionSpecifications.matching(id, filter, cursor),
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "transId")).limit(pageSize + 1).all());
+        return toPage(transactions, pageSize);
+    }
+
+    //history rows and their monthly aggregates are written in the same transaction
+    private void saveHistory(Transaction transaction) throws Exception {
+        transactionRepository.save(Mapper.mapToEncryptedTransaction(transaction, accountKeyManager));
+        monthlyAggregateService.record(transaction);
+    }
+
+    private void saveHistory(List<Transaction> transactions) throws Exception {
+        List<Transaction> encrypted = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            encrypted.add(Mapper.mapToEncryptedTransaction(transaction, accountKeyManager));
+        }
+        transactionRepository.insertAll(encrypted);
+        monthlyAggregateService.recordAll(transactions);
+    }
+
+    private void deleteHistory(Transaction decrypted) throws Exception {
+        transactionRepository.deleteById(decrypted.getTransId());
+        monthlyAggregateService.remove(decrypted);
+    }
+
+    private AccountDto toDto(Account account, long balance) throws Exception {
+        return Mapper.mapToAccountDto(account, balance, accountKeyManager);
+    }
+
+    //row locks are taken in ascending id order, same order the TransferEngine takes its stripes in
+
+    private Map<Long, Account> lockAccounts(Long... accountIds) {
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Long accountId : new TreeSet<>(Arrays.asList(accountIds))) {
+            accountRepository.findByIdForUpdate(accountId).ifPresent(account -> accounts.put(accountId, account));
+        }
+        return accounts;
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private static Long cursorOrStart(Long cursor) {
+        return cursor == null ? Long.MAX_VALUE : cursor;
+    }
+
+    //one extra row is fetched to know whether another page exists without a count query
+    private TransactionPage toPage(List<Transaction> transactions, int pageSize) throws Exception {
+        Long nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            nextCursor = transactions.get(pageSize - 1).getTransId();
+        }
+        return new TransactionPage(Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager), nextCursor);
+    }
+
     public String generateRandomPassword(int length) {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789@#$!";
         SecureRandom random = new SecureRandom();
@@ -0,0 +1,42 @@
+package net.desmond.bankingApp.service.impl;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.BlindIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+//accounts created before the blind index column existed have no index yet, fill them in once at startup
+@Component
+public class EmailBlindIndexBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailBlindIndexBackfill.class);
+
+    private final AccountRepository accountRepository;
+    private final AccountKeyManager accountKeyManager;
+    private final BlindIndexService blindIndexService;
+
+    public EmailBlindIndexBackfill(AccountRepository accountRepository, AccountKeyManager accountKeyManager, BlindIndexService blindIndexService) {
+        this.accountRepository = accountRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.blindIndexService = blindIndexService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (Account account : accountRepository.findAllByEmailBlindIndexIsNull()) {
+            try {
+                String email = Mapper.mapToLazyAccount(account, accountKeyManager).getAccountHolderEmailAddress();
+                account.setEmailBlindIndex(blindIndexService.emailIndex(email));
+                accountRepository.save(account);
+            } catch (Exception e) {
+                log.warn("Could not backfill email blind index for account {}", account.getAccountId(), e);
+            }
+        }
+    }
+}
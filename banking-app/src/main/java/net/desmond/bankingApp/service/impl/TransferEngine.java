@@ -0,0 +1,95 @@
+package net.desmond.bankingApp.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+//runs every balance mutation while holding the in-process locks of the accounts involved, inside one database transaction.
+//stripes are always taken in ascending index order so two transfers over the same accounts can never deadlock each other,
+//the work itself takes row locks (SELECT ... FOR UPDATE) in ascending account id order for the same reason across instances
+@Component
+public class TransferEngine {
+
+    private final ReentrantLock[] stripes;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransferEngine(PlatformTransactionManager transactionManager,
+                          @Value("${bank.transfer.lock-stripes:256}") int stripeCount) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T execute(Collection<Long> accountIds, TransferWork<T> work) throws Exception {
+        int[] order = accountIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int locked = 0;
+        try {
+            for (int index : order) {
+                stripes[index].lock();
+                locked++;
+            }
+            return inTransaction(work);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    //a ResponseStatusException from the work is a business rejection (e.g. insufficient balance), whatever the work recorded
+    //before rejecting (the failed transaction row) is committed and the exception is rethrown. anything else rolls back
+    private <T> T inTransaction(TransferWork<T> work) throws Exception {
+        ResponseStatusException[] rejection = new ResponseStatusException[1];
+        T result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                try {
+                    return work.run();
+                } catch (ResponseStatusException e) {
+                    rejection[0] = e;
+                    return null;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new WorkFailedException(e);
+                }
+            });
+        } catch (WorkFailedException e) {
+            throw (Exception) e.getCause();
+        }
+
+        if (rejection[0] != null) {
+            throw rejection[0];
+        }
+        return result;
+    }
+
+    private int stripeIndex(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), stripes.length);
+    }
+
+    @FunctionalInterface
+    public interface TransferWork<T> {
+        T run() throws Exception;
+    }
+
+    private static class WorkFailedException extends RuntimeException {
+        WorkFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.desmond.bankingApp.statements;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+//rendered statement of a closed month, gzipped and then encrypted with the account's key like every other column
+//holding account data. StatementService drops it when a transaction of that month is deleted
+@Getter
+@Setter
+@Table(name = "statement_cache", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_statement_cache_account_month_format", columnNames = {"account_id", "statement_month", "format"})
+})
+@Entity
+public class CachedStatement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "statement_month", nullable = false, length = 7)
+    private String statementMonth; //yyyy-MM
+
+    @Column(name = "format", nullable = false, length = 8)
+    private String format;
+
+    @Column(name = "content", columnDefinition = "LONGTEXT")
+    private String content; //encrypted gzip of the rendered statement
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public CachedStatement() {}
+
+    public CachedStatement(Long accountId, String statementMonth, String format, String content) {
+        this.accountId = accountId;
+        this.statementMonth = statementMonth;
+        this.format = format;
+        this.content = content;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,25 @@
+package net.desmond.bankingApp.statements;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface CachedStatementRepository extends JpaRepository<CachedStatement, Long> {
+
+    Optional<CachedStatement> findByAccountIdAndStatementMonthAndFormat(Long accountId, String statementMonth, String format);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CachedStatement s WHERE s.accountId IN :accountIds AND s.statementMonth = :statementMonth")
+    int deleteMonth(@Param("accountIds") Collection<Long> accountIds, @Param("statementMonth") String statementMonth);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CachedStatement s WHERE s.accountId = :accountId")
+    int deleteAccount(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,14 @@
+package net.desmond.bankingApp.statements;
+
+import net.desmond.bankingApp.transactions.TransactionDto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+//one account's month, oldest transaction first, amounts per line as in MoneyFlow
+public record Statement(Long accountId, String accountHolderName, String accountHolderAddress, YearMonth month,
+                        List<Line> lines, long moneyIn, long moneyOut) {
+
+    public record Line(TransactionDto transaction, long moneyIn, long moneyOut) {
+    }
+}
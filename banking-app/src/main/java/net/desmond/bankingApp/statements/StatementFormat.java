@@ -0,0 +1,32 @@
+package net.desmond.bankingApp.statements;
+
+import java.util.Locale;
+
+public enum StatementFormat {
+    PDF("application/pdf", "pdf"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    StatementFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static StatementFormat of(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown statement format: " + format);
+        }
+    }
+}
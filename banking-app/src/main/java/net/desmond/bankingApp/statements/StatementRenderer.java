@@ -0,0 +1,98 @@
+package net.desmond.bankingApp.statements;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import net.desmond.bankingApp.export.CsvWriter;
+import net.desmond.bankingApp.transactions.TransactionDto;
+import net.desmond.bankingApp.utils.MoneyUtil;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+//same columns the transaction history page shows, plus money in and out from the account's side
+public class StatementRenderer {
+
+    private static final DateTimeFormatter PERIOD = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+    private static final String[] COLUMNS = {"Transaction ID", "Sender ID", "Receiver ID", "Status", "Timestamp", "Money In", "Money Out"};
+
+    public static byte[] render(Statement statement, StatementFormat format) throws IOException {
+        return format == StatementFormat.PDF ? pdf(statement) : csv(statement);
+    }
+
+    static byte[] csv(Statement statement) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord("transId", "senderId", "receiverId", "status", "timestamp", "moneyIn", "moneyOut");
+        for (Statement.Line line : statement.lines()) {
+            TransactionDto transaction = line.transaction();
+            csv.writeRecord(String.valueOf(transaction.getTransId()), String.valueOf(transaction.getSenderId()),
+                    String.valueOf(transaction.getReceiverId()), transaction.getStatus(), transaction.getTimestamp(),
+                    MoneyUtil.format(line.moneyIn()), MoneyUtil.format(line.moneyOut()));
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    static byte[] pdf(Statement statement) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, out);
+        document.open();
+
+        Font title = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 20);
+        Font bold = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+        Font normal = FontFactory.getFont(FontFactory.HELVETICA, 10);
+
+        document.add(new Paragraph("Statement - " + statement.month().format(PERIOD), title));
+        document.add(field("Account ID: ", String.valueOf(statement.accountId()), bold, normal));
+        document.add(field("Name: ", statement.accountHolderName(), bold, normal));
+        document.add(field("Address: ", statement.accountHolderAddress(), bold, normal));
+        document.add(field("Money In: ", MoneyUtil.format(statement.moneyIn()), bold, normal));
+        document.add(field("Money Out: ", MoneyUtil.format(statement.moneyOut()), bold, normal));
+
+        PdfPTable table = new PdfPTable(COLUMNS.length);
+        table.setWidthPercentage(100);
+        table.setSpacingBefore(12);
+        table.setHeaderRows(1);
+        for (String column : COLUMNS) {
+            PdfPCell cell = new PdfPCell(new Phrase(column, bold));
+            cell.setBackgroundColor(new Color(230, 230, 230));
+            table.addCell(cell);
+        }
+        for (Statement.Line line : statement.lines()) {
+            TransactionDto transaction = line.transaction();
+            table.addCell(new Phrase(String.valueOf(transaction.getTransId()), normal));
+            table.addCell(new Phrase(String.valueOf(transaction.getSenderId()), normal));
+            table.addCell(new Phrase(String.valueOf(transaction.getReceiverId()), normal));
+            table.addCell(new Phrase(transaction.getStatus(), normal));
+            table.addCell(new Phrase(transaction.getTimestamp(), normal));
+            table.addCell(new Phrase(line.moneyIn() == 0 ? "" : MoneyUtil.format(line.moneyIn()), normal));
+            table.addCell(new Phrase(line.moneyOut() == 0 ? "" : MoneyUtil.format(line.moneyOut()), normal));
+        }
+        document.add(table);
+
+        document.close();
+        return out.toByteArray();
+    }
+
+    private static Paragraph field(String label, String value, Font bold, Font normal) {
+        Paragraph paragraph = new Paragraph();
+        paragraph.add(new Phrase(label, bold));
+        paragraph.add(new Phrase(value, normal));
+        return paragraph;
+    }
+}
@@ -0,0 +1,146 @@
+package net.desmond.bankingApp.statements;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.insights.MoneyFlow;
+import net.desmond.bankingApp.mapper.LazyAccount;
+import net.desmond.bankingApp.mapper.Mapper;
+import net.desmond.bankingApp.repository.AccountRepository;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.transactions.Transaction;
+import net.desmond.bankingApp.transactions.TransactionDto;
+import net.desmond.bankingApp.transactions.TransactionRepository;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//monthly statements rendered on the server from one month of transaction_history. a closed month does not change, so
+//its rendering is kept in statement_cache and later reads are a single row lookup. the current month is always
+//rendered fresh, and so is a closed month that still holds pending rows, they change when executed or declined.
+//deleting a transaction drops the cached statements of its month for both parties
+@Service
+public class StatementService {
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final CachedStatementRepository cachedStatementRepository;
+    private final AccountKeyManager accountKeyManager;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StatementService(TransactionRepository transactionRepository,
+                            AccountRepository accountRepository,
+                            CachedStatementRepository cachedStatementRepository,
+                            AccountKeyManager accountKeyManager,
+                            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.cachedStatementRepository = cachedStatementRepository;
+        this.accountKeyManager = accountKeyManager;
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+    }
+
+    public byte[] statement(Long accountId, YearMonth month, StatementFormat format) throws Exception {
+        YearMonth current = YearMonth.now();
+        if (month.isAfter(current)) {
+            throw new IllegalArgumentException("Statement month is in the future.");
+        }
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account does not exist."));
+        SecretKey aesKey = accountKeyManager.getAesKey(accountId, account.getAesEncryptedKey());
+        boolean closed = month.isBefore(current);
+
+        if (closed) {
+            Optional<CachedStatement> cached = cachedStatementRepository.findByAccountIdAndStatementMonthAndFormat(accountId, month.toString(), format.name());
+            if (cached.isPresent()) {
+                hits.increment();
+                return gunzip(EncryptionUtil.decryptBytesWithAES(cached.get().getContent(), aesKey));
+            }
+        }
+        misses.increment();
+
+        List<Transaction> transactions = transactionRepository.findAccountRange(accountId,
+                TimeUtil.startOf(month), TimeUtil.startOf(month.plusMonths(1)));
+        byte[] rendered = StatementRenderer.render(build(account, month, transactions), format);
+
+        if (closed && transactions.stream().noneMatch(transaction -> "pending".equals(transaction.getStatus()))) {
+            try {
+                cachedStatementRepository.save(new CachedStatement(accountId, month.toString(), format.name(),
+                        EncryptionUtil.encryptBytesWithAES(gzip(rendered), aesKey)));
+            } catch (DataIntegrityViolationException e) {
+                //a concurrent request cached the same statement first
+            }
+        }
+        return rendered;
+    }
+
+    //call with the row before it is deleted
+    public void evict(Transaction transaction) {
+        YearMonth month = TimeUtil.month(transaction.getOccurredAt());
+        cachedStatementRepository.deleteMonth(Set.copyOf(List.of(transaction.getSenderId(), transaction.getReceiverId())), month.toString());
+    }
+
+    public void evictAccount(Long accountId) {
+        cachedStatementRepository.deleteAccount(accountId);
+    }
+
+    private Statement build(Account account, YearMonth month, List<Transaction> transactions) throws Exception {
+        Long accountId = account.getAccountId();
+        List<Statement.Line> lines = new ArrayList<>(transactions.size());
+        long moneyIn = 0;
+        long moneyOut = 0;
+        for (TransactionDto transaction : Mapper.mapToDecryptedTransactionDtos(transactions, accountKeyManager)) {
+            Statement.Line line = line(accountId, transaction);
+            moneyIn = Math.addExact(moneyIn, line.moneyIn());
+            moneyOut = Math.addExact(moneyOut, line.moneyOut());
+            lines.add(line);
+        }
+        LazyAccount lazy = Mapper.mapToLazyAccount(account, accountKeyManager);
+        return new Statement(accountId, lazy.getAccountHolderName(), lazy.getAccountHolderAddress(), month, lines, moneyIn, moneyOut);
+    }
+
+    private static Statement.Line line(Long accountId, TransactionDto transaction) {
+        MoneyFlow flow = MoneyFlow.of(accountId, transaction.getSenderId(), transaction.getStatus(), transaction.getAmount());
+        return new Statement.Line(transaction, flow.in(), flow.out());
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return gzip.readAllBytes();
+        }
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.statements.cache")
+                .description("Statement reads served from statement_cache (hit) or rendered (miss)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
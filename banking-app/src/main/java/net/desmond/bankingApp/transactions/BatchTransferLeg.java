@@ -0,0 +1,5 @@
+package net.desmond.bankingApp.transactions;
+
+//one receiver of a batch transfer, amount in minor units
+public record BatchTransferLeg(Long receiverId, long amount) {
+}
@@ -0,0 +1,23 @@
+package net.desmond.bankingApp.transactions;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import net.desmond.bankingApp.dto.AccountDto;
+import net.desmond.bankingApp.utils.MinorUnitsSerializer;
+
+import java.util.List;
+
+//sender is the account after every successful leg, legs are in request order
+public record BatchTransferResult(AccountDto sender, int succeeded, int failed, List<Leg> legs) {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILED = "failed";
+
+    public static BatchTransferResult of(AccountDto sender, List<Leg> legs) {
+        int succeeded = (int) legs.stream().filter(leg -> SUCCESS.equals(leg.status())).count();
+        return new BatchTransferResult(sender, succeeded, legs.size() - succeeded, legs);
+    }
+
+    public record Leg(int index, Long receiverId, @JsonSerialize(using = MinorUnitsSerializer.class) long amount,
+                      String status, String error) {
+    }
+}
@@ -4,11 +4,18 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 
 @Getter
 @Setter
-@Table(name="transaction_history")
+@Table(name="transaction_history", indexes = {
+        @Index(name = "idx_transaction_history_sender", columnList = "sender_Id, transId"),
+        @Index(name = "idx_transaction_history_receiver", columnList = "receiver_Id, transId"),
+        @Index(name = "idx_transaction_history_status", columnList = "status, transId"),
+        @Index(name = "idx_transaction_history_sender_time", columnList = "sender_Id, occurred_at"),
+        @Index(name = "idx_transaction_history_receiver_time", columnList = "receiver_Id, occurred_at"),
+        @Index(name = "idx_transaction_history_time", columnList = "occurred_at")
+})
 @Entity
 public class Transaction {
     @Id
@@ -22,13 +29,20 @@ public class Transaction {
     private Long receiverId;
 
     @Column(name = "amount")
-    private String amount;
+    private String amount; //encrypted MoneyUtil.encode of amountMinor
+
+    @Transient
+    private long amountMinor;
 
     @Column(name = "status")
     private String status;
 
+    @Column(name = "occurred_at")
+    private Instant occurredAt;
+
+    //LocalDateTime.toString() in the server's zone, no longer written. TransactionTimestampBackfill moves it into occurredAt
     @Column(name = "timestamp")
-    private String timestamp;
+    private String legacyTimestamp;
 
     @Column(name = "sender_aes_encrypted_key", columnDefinition = "TEXT")
     private String senderAesEncryptedKey;
@@ -36,22 +50,22 @@ public class Transaction {
     public Transaction() {
     }
 
-    public Transaction(Long transId, Long senderId, Long receiverId, String amount, String status, String timestamp, String senderAesEncryptedKey) {
+    public Transaction(Long transId, Long senderId, Long receiverId, String amount, String status, Instant occurredAt, String senderAesEncryptedKey) {
         this.transId = transId;
         this.senderId = senderId;
         this.receiverId = receiverId;
         this.amount = amount;
         this.status = status;
-        this.timestamp = timestamp;
+        this.occurredAt = occurredAt;
         this.senderAesEncryptedKey = senderAesEncryptedKey;
     }
 
-    public Transaction(Long senderId, Long receiverId, String amount, String status, String senderAesEncryptedKey) {
+    public Transaction(Long senderId, Long receiverId, long amountMinor, String status, String senderAesEncryptedKey) {
         this.senderId = senderId;
         this.receiverId = receiverId;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.status = status;
-        this.timestamp = String.valueOf(LocalDateTime.now());
+        this.occurredAt = Instant.now();
         this.senderAesEncryptedKey = senderAesEncryptedKey;
     }
 
@@ -87,6 +101,14 @@ public class Transaction {
         this.amount = amount;
     }
 
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -95,12 +117,12 @@ public class Transaction {
         this.status = status;
     }
 
-    public String getTimestamp() {
-        return timestamp;
+    public Instant getOccurredAt() {
+        return occurredAt;
     }
 
-    public void setTimestamp(String timestamp) {
-        this.timestamp = timestamp;
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
     }
 
     public String getSenderAesEncryptedKey() {
@@ -0,0 +1,13 @@
+package net.desmond.bankingApp.transactions;
+
+import java.util.List;
+
+public interface TransactionBatchRepository {
+
+    //inserts already encrypted rows as JDBC batches. transId stays IDENTITY so keyset pages keep their newest first
+    //order, which also means Hibernate cannot batch these inserts itself. the passed rows do not get their ids back
+    void insertAll(List<Transaction> transactions);
+
+    //writes occurredAt of existing rows by transId, nothing else
+    void updateOccurredAt(List<Transaction> transactions);
+}
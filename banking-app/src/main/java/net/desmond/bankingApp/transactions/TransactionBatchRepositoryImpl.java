@@ -0,0 +1,49 @@
+package net.desmond.bankingApp.transactions;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class TransactionBatchRepositoryImpl implements TransactionBatchRepository {
+
+    private static final String INSERT = "INSERT INTO transaction_history "
+            + "(sender_id, receiver_id, amount, status, occurred_at, sender_aes_encrypted_key) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_OCCURRED_AT = "UPDATE transaction_history SET occurred_at = ? WHERE trans_id = ?";
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public TransactionBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                          @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<Transaction> transactions) {
+        //bound in UTC like Hibernate binds Instant, a DATETIME column has no zone of its own
+        Calendar utc = Calendar.getInstance(UTC);
+        jdbcTemplate.batchUpdate(INSERT, transactions, batchSize, (statement, transaction) -> {
+            statement.setLong(1, transaction.getSenderId());
+            statement.setLong(2, transaction.getReceiverId());
+            statement.setString(3, transaction.getAmount());
+            statement.setString(4, transaction.getStatus());
+            statement.setTimestamp(5, Timestamp.from(transaction.getOccurredAt()), utc);
+            statement.setString(6, transaction.getSenderAesEncryptedKey());
+        });
+    }
+
+    @Override
+    public void updateOccurredAt(List<Transaction> transactions) {
+        Calendar utc = Calendar.getInstance(UTC);
+        jdbcTemplate.batchUpdate(UPDATE_OCCURRED_AT, transactions, batchSize, (statement, transaction) -> {
+            statement.setTimestamp(1, Timestamp.from(transaction.getOccurredAt()), utc);
+            statement.setLong(2, transaction.getTransId());
+        });
+    }
+}
@@ -1,21 +1,27 @@
 package net.desmond.bankingApp.transactions;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import net.desmond.bankingApp.utils.MinorUnitsSerializer;
+
 public class TransactionDto {
 
     private Long transId;
     private Long senderId;
     private Long receiverId;
-    private double amount;
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private long amount; //minor units
     private String status;
-    private String timestamp;
+    private String timestamp; //display form in the server's zone
+    private long timestampMillis; //epoch millis, for clients that format it themselves
 
-    public TransactionDto(Long transId, Long senderId, Long receiverId, double amount, String status, String timestamp) {
+    public TransactionDto(Long transId, Long senderId, Long receiverId, long amount, String status, String timestamp, long timestampMillis) {
         this.transId = transId;
         this.senderId = senderId;
         this.receiverId = receiverId;
         this.amount = amount;
         this.status = status;
         this.timestamp = timestamp;
+        this.timestampMillis = timestampMillis;
     }
 
     public Long getTransId() {
@@ -42,11 +48,11 @@ public class TransactionDto {
         this.receiverId = receiverId;
     }
 
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -65,4 +71,12 @@ public class TransactionDto {
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+    }
 }
@@ -0,0 +1,96 @@
+package net.desmond.bankingApp.transactions;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//same filters TransactionHistory offers, bound from query params. every field is optional
+public class TransactionFilter {
+
+    private Long transId;
+    private Long senderId;
+    private Long receiverId;
+    private List<String> status;
+    private String month; //yyyy-MM
+    private boolean sentOnly;
+    private boolean receivedOnly;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    public Long getTransId() {
+        return transId;
+    }
+
+    public void setTransId(Long transId) {
+        this.transId = transId;
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public List<String> getStatus() {
+        return status;
+    }
+
+    public void setStatus(List<String> status) {
+        this.status = status;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public boolean isSentOnly() {
+        return sentOnly;
+    }
+
+    public void setSentOnly(boolean sentOnly) {
+        this.sentOnly = sentOnly;
+    }
+
+    public boolean isReceivedOnly() {
+        return receivedOnly;
+    }
+
+    public void setReceivedOnly(boolean receivedOnly) {
+        this.receivedOnly = receivedOnly;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+}
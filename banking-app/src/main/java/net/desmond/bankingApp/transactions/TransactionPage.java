@@ -0,0 +1,31 @@
+package net.desmond.bankingApp.transactions;
+
+import java.util.List;
+
+//one keyset page of transactions, newest first. nextCursor is the transId to pass back for the next page, null on the last page
+public class TransactionPage {
+
+    private List<TransactionDto> transactions;
+    private Long nextCursor;
+
+    public TransactionPage(List<TransactionDto> transactions, Long nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TransactionDto> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<TransactionDto> transactions) {
+        this.transactions = transactions;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -1,12 +1,22 @@
 package net.desmond.bankingApp.transactions;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface TransactionRepository extends JpaRepository<Transaction,Long> {
+public interface TransactionRepository extends JpaRepository<Transaction,Long>, JpaSpecificationExecutor<Transaction>, TransactionBatchRepository {
     @Query("SELECT t FROM Transaction t WHERE t.senderId = :senderId")
     List<Transaction> findAllSent(@Param("senderId") Long senderId);
 
@@ -16,9 +26,6 @@ public interface TransactionRepository extends JpaRepository<Transaction,Long> {
     @Query("SELECT t FROM Transaction t WHERE t.senderId = :userId OR t.receiverId = :userId")
     List<Transaction> findTransactionById(@Param("userId") Long userId);
 
-    @Query("SELECT t FROM Transaction t WHERE t.status = 'pending'")
-    List<Transaction> findAllPending();
-
     @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND (t.senderId = :userId OR t.receiverId = :userId)")
     List<Transaction> findAllPendingByUser(@Param("userId") Long userId);
 
@@ -27,4 +34,54 @@ public interface TransactionRepository extends JpaRepository<Transaction,Long> {
 
     @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND t.receiverId = :receiverId")
     List<Transaction> findAllPendingReceivedByUser(@Param("receiverId") Long receiverId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.transId = :transId")
+    Optional<Transaction> findByIdForUpdate(@Param("transId") Long transId);
+
+    //keyset pages, newest first, every row returned has transId < cursor
+    @Query("SELECT t FROM Transaction t WHERE t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findPage(@Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.senderId = :senderId AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findSentPage(@Param("senderId") Long senderId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.receiverId = :receiverId AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findReceivedPage(@Param("receiverId") Long receiverId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE (t.senderId = :userId OR t.receiverId = :userId) AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findTransactionPageById(@Param("userId") Long userId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findPendingPage(@Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND (t.senderId = :userId OR t.receiverId = :userId) AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findPendingPageByUser(@Param("userId") Long userId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND t.senderId = :senderId AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findPendingSentPageByUser(@Param("senderId") Long senderId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.status = 'pending' AND t.receiverId = :receiverId AND t.transId < :cursor ORDER BY t.transId DESC")
+    List<Transaction> findPendingReceivedPageByUser(@Param("receiverId") Long receiverId, @Param("cursor") Long cursor, Limit limit);
+
+    @Query("SELECT MAX(t.transId) FROM Transaction t")
+    Long findMaxTransId();
+
+    //oldest first, for walking the history in pages
+    @Query("SELECT t FROM Transaction t WHERE t.transId > :after AND t.transId <= :upTo ORDER BY t.transId")
+    List<Transaction> findRange(@Param("after") Long after, @Param("upTo") Long upTo, Limit limit);
+
+    //one account's rows in [from, to), oldest first. statements read a month with it
+    @Query("SELECT t FROM Transaction t WHERE (t.senderId = :accountId OR t.receiverId = :accountId) "
+            + "AND t.occurredAt >= :from AND t.occurredAt < :to ORDER BY t.occurredAt, t.transId")
+    List<Transaction> findAccountRange(@Param("accountId") Long accountId, @Param("from") Instant from, @Param("to") Instant to);
+
+    //rows from before occurred_at existed, for TransactionTimestampBackfill
+    @Query("SELECT t FROM Transaction t WHERE t.occurredAt IS NULL AND t.transId > :after ORDER BY t.transId")
+    List<Transaction> findWithoutOccurredAt(@Param("after") Long after, Limit limit);
+
+    //exports read off a cursor instead of one list, the caller has to close the stream inside a transaction
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM Transaction t ORDER BY t.transId")
+    Stream<Transaction> streamAll();
 }
@@ -0,0 +1,88 @@
+package net.desmond.bankingApp.transactions;
+
+import jakarta.persistence.criteria.Predicate;
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionSpecifications {
+
+    //only filters that were actually given become predicates, so the query stays on the sender/receiver/status indexes
+    public static Specification<Transaction> matching(Long accountId, TransactionFilter filter, Long cursor) {
+        LocalDateTime from = filter.getFrom();
+        LocalDateTime to = filter.getTo();
+        if (filter.getMonth() != null && !filter.getMonth().isBlank()) {
+            YearMonth month = parseMonth(filter.getMonth());
+            from = latest(from, month.atDay(1).atStartOfDay());
+            to = earliest(to, month.plusMonths(1).atDay(1).atStartOfDay());
+        }
+        Instant rangeFrom = from == null ? null : TimeUtil.toInstant(from);
+        Instant rangeTo = to == null ? null : TimeUtil.toInstant(to);
+
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.isSentOnly()) {
+                predicates.add(cb.equal(root.get("senderId"), accountId));
+            }
+            if (filter.isReceivedOnly()) {
+                predicates.add(cb.equal(root.get("receiverId"), accountId));
+            }
+            if (!filter.isSentOnly() && !filter.isReceivedOnly()) {
+                predicates.add(cb.or(
+                        cb.equal(root.get("senderId"), accountId),
+                        cb.equal(root.get("receiverId"), accountId)));
+            }
+
+            if (filter.getTransId() != null) {
+                predicates.add(cb.equal(root.get("transId"), filter.getTransId()));
+            }
+            if (filter.getSenderId() != null) {
+                predicates.add(cb.equal(root.get("senderId"), filter.getSenderId()));
+            }
+            if (filter.getReceiverId() != null) {
+                predicates.add(cb.equal(root.get("receiverId"), filter.getReceiverId()));
+            }
+            if (filter.getStatus() != null && !filter.getStatus().isEmpty()) {
+                predicates.add(root.get("status").in(filter.getStatus().stream().map(String::toLowerCase).toList()));
+            }
+
+            //a range on occurred_at, next to the account column in the sender/receiver time indexes
+            if (rangeFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<Instant>get("occurredAt"), rangeFrom));
+            }
+            if (rangeTo != null) {
+                predicates.add(cb.lessThan(root.<Instant>get("occurredAt"), rangeTo));
+            }
+
+            if (cursor != null) {
+                predicates.add(cb.lessThan(root.get("transId"), cursor));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static YearMonth parseMonth(String month) {
+        try {
+            return YearMonth.parse(month.trim());
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid month, expected yyyy-MM.");
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+}
@@ -0,0 +1,76 @@
+package net.desmond.bankingApp.transactions;
+
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+//rows written before occurred_at existed only have the LocalDateTime string, parse it once at startup in the zone it
+//was written in. runs before the other backfills, MonthlyAggregateBackfill takes months from occurredAt
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TransactionTimestampBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionTimestampBackfill.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final TransactionRepository transactionRepository;
+
+    public TransactionTimestampBackfill(TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
+    //a failure stops startup, the later backfills and every month filter would otherwise work on rows without a time.
+    //a row whose legacy timestamp does not parse is left without one and reported, no time is made up for it
+    @Override
+    public void run(ApplicationArguments args) {
+        long after = 0;
+        long unparseable = 0;
+        try {
+            List<Transaction> page;
+            while (!(page = transactionRepository.findWithoutOccurredAt(after, Limit.of(PAGE_SIZE))).isEmpty()) {
+                List<Transaction> parsed = new ArrayList<>(page.size());
+                for (Transaction transaction : page) {
+                    Instant occurredAt = parse(transaction.getLegacyTimestamp());
+                    if (occurredAt == null) {
+                        log.error("Transaction {} has no parseable timestamp: {}", transaction.getTransId(), transaction.getLegacyTimestamp());
+                        unparseable++;
+                        continue;
+                    }
+                    transaction.setOccurredAt(occurredAt);
+                    parsed.add(transaction);
+                }
+                transactionRepository.updateOccurredAt(parsed);
+                after = page.get(page.size() - 1).getTransId();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not backfill occurred_at after transaction " + after, e);
+        }
+        if (unparseable > 0) {
+            throw new IllegalStateException(unparseable + " transactions have no parseable timestamp, "
+                    + "set their occurred_at (UTC) and restart");
+        }
+    }
+
+    private static Instant parse(String legacyTimestamp) {
+        if (legacyTimestamp == null) {
+            return null;
+        }
+        try {
+            return TimeUtil.toInstant(LocalDateTime.parse(legacyTimestamp));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.desmond.bankingApp.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+//keyed HMAC of a normalized email, lets us look an account up by email without decrypting every row
+//the key must stay stable across restarts, changing it means every stored index has to be rebuilt
+@Service
+public class BlindIndexService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public BlindIndexService(@Value("${bank.email-index.key}") String indexKey) {
+        SecretKeySpec keySpec = new SecretKeySpec(indexKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(keySpec);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialise email blind index.", e);
+            }
+        });
+    }
+
+    public String emailIndex(String email) {
+        String normalized = email.trim().toLowerCase();
+        return HexFormat.of().formatHex(mac.get().doFinal(normalized.getBytes(StandardCharsets.UTF_8)));
+    }
+}
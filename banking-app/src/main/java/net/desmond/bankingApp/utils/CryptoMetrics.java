@@ -0,0 +1,25 @@
+package net.desmond.bankingApp.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+//meters for the static crypto utils. they live on the global registry, which Spring Boot's registries (Prometheus) join at startup
+final class CryptoMetrics {
+
+    private CryptoMetrics() {}
+
+    static Timer timer(String operation) {
+        return Timer.builder("bank.crypto")
+                .description("Time spent in a crypto operation")
+                .tag("operation", operation)
+                .register(Metrics.globalRegistry);
+    }
+
+    static Counter aesFields(String direction) {
+        return Counter.builder("bank.crypto.aes.fields")
+                .description("Fields encrypted or decrypted with an account AES key")
+                .tag("direction", direction)
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,212 @@
+package net.desmond.bankingApp.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import net.desmond.bankingApp.entity.OutboundEmail;
+import net.desmond.bankingApp.repository.OutboundEmailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//delivers queued mails off the request thread. due rows are claimed under a row lock by pushing their next attempt
+//past a lease, so a crashed or slow send is picked up again once the lease runs out and two instances never send the same row.
+//each worker sends its share of the batch over one SMTP connection, failures are retried with exponential backoff
+@Component
+@Lazy(false)
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final MeterRegistry meterRegistry;
+    private final Counter sentMessages;
+    private final Counter retriedMessages;
+    private final Counter failedMessages;
+
+    private final String from;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    public EmailOutboxDispatcher(OutboundEmailRepository outboundEmailRepository,
+                                 JavaMailSender mailSender,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${spring.mail.username:}") String from,
+                                 @Value("${bank.email.outbox.batch-size:50}") int batchSize,
+                                 @Value("${bank.email.outbox.concurrency:2}") int concurrency,
+                                 @Value("${bank.email.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${bank.email.outbox.initial-backoff:10s}") Duration initialBackoff,
+                                 @Value("${bank.email.outbox.max-backoff:30m}") Duration maxBackoff,
+                                 @Value("${bank.email.outbox.lease:2m}") Duration lease) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Executors.newFixedThreadPool(concurrency);
+        this.meterRegistry = meterRegistry;
+        this.sentMessages = messageCounter("sent");
+        this.retriedMessages = messageCounter("retry");
+        this.failedMessages = messageCounter("failed");
+        this.from = from;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.email.outbox.poll-interval:2s}", initialDelayString = "${bank.email.outbox.poll-interval:2s}")
+    public void dispatch() {
+        List<OutboundEmail> claimed = claimDue();
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        int chunkSize = (claimed.size() + concurrency - 1) / concurrency;
+        List<Future<?>> sends = new ArrayList<>();
+        for (int start = 0; start < claimed.size(); start += chunkSize) {
+            List<OutboundEmail> chunk = claimed.subList(start, Math.min(start + chunkSize, claimed.size()));
+            sends.add(workers.submit(() -> send(chunk)));
+        }
+        for (Future<?> send : sends) {
+            try {
+                send.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Email outbox worker failed", e);
+            }
+        }
+    }
+
+    private List<OutboundEmail> claimDue() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboundEmail> due = outboundEmailRepository.findDueForUpdate(now, Limit.of(batchSize));
+            for (OutboundEmail email : due) {
+                email.setAttempts(email.getAttempts() + 1);
+                email.setNextAttemptAt(now.plus(lease));
+            }
+            return outboundEmailRepository.saveAll(due);
+        });
+    }
+
+    private void send(List<OutboundEmail> emails) {
+        Map<SimpleMailMessage, OutboundEmail> byMessage = new IdentityHashMap<>();
+        for (OutboundEmail email : emails) {
+            byMessage.put(toMessage(email), email);
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            mailSender.send(byMessage.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures.putAll(e.getFailedMessages());
+            if (failures.isEmpty()) {
+                byMessage.keySet().forEach(message -> failures.put(message, e));
+            }
+        } catch (MailException e) {
+            //connection or authentication problem, nothing went out
+            byMessage.keySet().forEach(message -> failures.put(message, e));
+        }
+        //one sample per connection, covers connect, auth and every message in the chunk
+        sample.stop(Timer.builder("bank.email.send")
+                .description("Time to deliver one chunk of outbox mail over a single SMTP connection")
+                .tag("outcome", failures.isEmpty() ? "success" : "failure")
+                .register(meterRegistry));
+
+        List<OutboundEmail> sent = new ArrayList<>();
+        List<OutboundEmail> failed = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Map.Entry<SimpleMailMessage, OutboundEmail> entry : byMessage.entrySet()) {
+            OutboundEmail email = entry.getValue();
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                sent.add(email);
+            } else {
+                reschedule(email, failure, now);
+                failed.add(email);
+            }
+        }
+
+        //sent mails are removed, bodies may hold temporary passwords and verification tokens
+        outboundEmailRepository.deleteAllInBatch(sent);
+        outboundEmailRepository.saveAll(failed);
+        sentMessages.increment(sent.size());
+    }
+
+    private void reschedule(OutboundEmail email, Exception failure, Instant now) {
+        String error = String.valueOf(failure.getMessage());
+        email.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus("failed");
+            failedMessages.increment();
+            log.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(), email.getAttempts());
+            return;
+        }
+        email.setNextAttemptAt(now.plus(backoff(email.getAttempts())));
+        retriedMessages.increment();
+        log.warn("Email {} failed on attempt {}, retrying at {}", email.getId(), email.getAttempts(), email.getNextAttemptAt());
+    }
+
+    //initial, 2x, 4x ... capped at maxBackoff
+    private Duration backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 20);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private Counter messageCounter(String outcome) {
+        return Counter.builder("bank.email.messages")
+                .description("Outbox mails by delivery outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private SimpleMailMessage toMessage(OutboundEmail email) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        if (!from.isBlank()) {
+            message.setFrom(from);
+        }
+        message.setTo(email.getRecipient());
+        message.setSubject(email.getSubject());
+        message.setText(email.getBody());
+        return message;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
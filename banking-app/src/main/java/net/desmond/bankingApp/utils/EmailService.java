@@ -1,22 +1,18 @@
 package net.desmond.bankingApp.utils;
 
+import net.desmond.bankingApp.entity.OutboundEmail;
+import net.desmond.bankingApp.repository.OutboundEmailRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private OutboundEmailRepository outboundEmailRepository;
 
+    //queues the mail in the outbox, joining the caller's transaction. EmailOutboxDispatcher delivers it in the background
     public void sendVerificationEmail(String toEmail, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("${SILVERSTONE_EMAIL}");
-        message.setTo(toEmail);
-        message.setSubject(subject);
-        message.setText(body);
-        mailSender.send(message);
+        outboundEmailRepository.save(new OutboundEmail(toEmail, subject, body));
     }
 }
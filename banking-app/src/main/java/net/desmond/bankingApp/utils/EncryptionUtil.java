@@ -1,18 +1,38 @@
 package net.desmond.bankingApp.utils;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.*;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
+//Cipher objects are not thread safe but are expensive to look up, so each thread keeps one per transformation.
+//every call re-inits its cipher with the key it needs, which also clears any state left by a failed doFinal.
+//RSA and AES calls are timed under bank.crypto, batch calls are timed once and count every field
 public class EncryptionUtil {
 
+    private static final String AES_CBC = "AES/CBC/PKCS5Padding";
+    private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[16]); // 16-byte IV for AES-CBC
+
+    private static final ThreadLocal<Cipher> aesCipher = threadLocalCipher("AES");
+    private static final ThreadLocal<Cipher> aesCbcCipher = threadLocalCipher(AES_CBC);
+    private static final ThreadLocal<Cipher> rsaCipher = threadLocalCipher("RSA");
+
+    private static final Timer rsaWrapTimer = CryptoMetrics.timer("rsa.wrap");
+    private static final Timer rsaUnwrapTimer = CryptoMetrics.timer("rsa.unwrap");
+    private static final Timer aesEncryptTimer = CryptoMetrics.timer("aes.encrypt");
+    private static final Timer aesDecryptTimer = CryptoMetrics.timer("aes.decrypt");
+    private static final Counter encryptedFields = CryptoMetrics.aesFields("encrypt");
+    private static final Counter decryptedFields = CryptoMetrics.aesFields("decrypt");
+
     // Encrypt data using AES
     public static String encryptAES(String data, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
+        Cipher cipher = aesCipher.get();
         cipher.init(Cipher.ENCRYPT_MODE, secretKey);
         byte[] encryptedBytes = cipher.doFinal(data.getBytes());
         return Base64.getEncoder().encodeToString(encryptedBytes);
@@ -20,7 +40,7 @@ public class EncryptionUtil {
 
     // Decrypt data using AES
     public static String decryptAES(String encryptedData, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
+        Cipher cipher = aesCipher.get();
         cipher.init(Cipher.DECRYPT_MODE, secretKey);
         byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
         return new String(decryptedBytes);
@@ -28,39 +48,114 @@ public class EncryptionUtil {
 
     // Encrypt AES Key using RSA Public Key
     public static String encryptAESKeyWithRSA(SecretKey aesKey, PublicKey publicKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        byte[] encryptedKey = cipher.doFinal(aesKey.getEncoded());
-        return Base64.getEncoder().encodeToString(encryptedKey);
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = rsaCipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+            byte[] encryptedKey = cipher.doFinal(aesKey.getEncoded());
+            return Base64.getEncoder().encodeToString(encryptedKey);
+        } finally {
+            rsaWrapTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     // Decrypt AES Key using RSA Private Key
     public static SecretKey decryptAESKeyWithRSA(String encryptedKey, PrivateKey privateKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, privateKey);
-        byte[] decryptedKeyBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedKey));
-        return new SecretKeySpec(decryptedKeyBytes, "AES");
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = rsaCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            byte[] decryptedKeyBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedKey));
+            return new SecretKeySpec(decryptedKeyBytes, "AES");
+        } finally {
+            rsaUnwrapTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     public static String encryptWithAES(String plainText, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        return encryptBytesWithAES(plainText.getBytes(), secretKey);
+    }
 
-        IvParameterSpec iv = new IvParameterSpec(new byte[16]); // 16-byte IV for AES-CBC
+    public static String decryptWithAES(String encryptedText, SecretKey secretKey) throws Exception {
+        return new String(decryptBytesWithAES(encryptedText, secretKey));
+    }
 
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, iv);
-        byte[] encryptedBytes = cipher.doFinal(plainText.getBytes());
-        return Base64.getEncoder().encodeToString(encryptedBytes);
+    // Same AES-CBC scheme for binary values (e.g. MoneyUtil.encode)
+    public static String encryptBytesWithAES(byte[] plainBytes, SecretKey secretKey) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = aesCbcCipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ZERO_IV);
+            byte[] encryptedBytes = cipher.doFinal(plainBytes);
+            return Base64.getEncoder().encodeToString(encryptedBytes);
+        } finally {
+            aesEncryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            encryptedFields.increment();
+        }
     }
 
-    public static String decryptWithAES(String encryptedText, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    public static byte[] decryptBytesWithAES(String encryptedText, SecretKey secretKey) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = aesCbcCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, ZERO_IV); // Same 16-byte IV used in encryption
+            return cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+        } finally {
+            aesDecryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            decryptedFields.increment();
+        }
+    }
 
-        IvParameterSpec iv = new IvParameterSpec(new byte[16]); // Same 16-byte IV used in encryption
+    // Encrypt several values under one key with a single init, doFinal puts CBC back to the init state after each value.
+    // Output matches encryptBytesWithAES value by value, null stays null
+    public static String[] encryptAllWithAES(SecretKey secretKey, byte[]... plainValues) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = aesCbcCipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ZERO_IV);
+            Base64.Encoder encoder = Base64.getEncoder();
 
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, iv);
-        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+            String[] encryptedValues = new String[plainValues.length];
+            for (int i = 0; i < plainValues.length; i++) {
+                if (plainValues[i] != null) {
+                    encryptedValues[i] = encoder.encodeToString(cipher.doFinal(plainValues[i]));
+                }
+            }
+            return encryptedValues;
+        } finally {
+            aesEncryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            encryptedFields.increment(plainValues.length);
+        }
+    }
 
-        return new String(decryptedBytes);
+    public static byte[][] decryptAllWithAES(SecretKey secretKey, String... encryptedValues) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Cipher cipher = aesCbcCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, ZERO_IV);
+            Base64.Decoder decoder = Base64.getDecoder();
+
+            byte[][] plainValues = new byte[encryptedValues.length][];
+            for (int i = 0; i < encryptedValues.length; i++) {
+                if (encryptedValues[i] != null) {
+                    plainValues[i] = cipher.doFinal(decoder.decode(encryptedValues[i]));
+                }
+            }
+            return plainValues;
+        } finally {
+            aesDecryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            decryptedFields.increment(encryptedValues.length);
+        }
+    }
+
+    private static ThreadLocal<Cipher> threadLocalCipher(String transformation) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                return Cipher.getInstance(transformation);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cipher " + transformation + " is not available.", e);
+            }
+        });
     }
 
 }
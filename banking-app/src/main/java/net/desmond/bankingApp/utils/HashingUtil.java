@@ -1,15 +1,19 @@
 package net.desmond.bankingApp.utils;
 
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 
 public class HashingUtil {
 
+    private static final Timer hashTimer = CryptoMetrics.timer("bcrypt.hash");
+    private static final Timer verifyTimer = CryptoMetrics.timer("bcrypt.verify");
+
     //hashing using BCrypt
     public static String hashPassword(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt()); // Automatically generates a secure salt
+        return hashTimer.record(() -> BCrypt.hashpw(password, BCrypt.gensalt())); // Automatically generates a secure salt
     }
 
     public static boolean verifyPassword(String enteredPassword, String storedHash) {
-        return BCrypt.checkpw(enteredPassword, storedHash);
+        return verifyTimer.record(() -> BCrypt.checkpw(enteredPassword, storedHash));
     }
 }
@@ -1,8 +1,11 @@
 package net.desmond.bankingApp.utils;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Timer;
 import java.security.Key;
 import java.util.Date;
 
@@ -11,35 +14,35 @@ public class JwtUtil {
     // Generate a strong 256-bit secret key at runtime
     private static final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
+    // Parser is immutable and thread safe, built once instead of per call
+    private static final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build();
+
+    private static final Timer signTimer = CryptoMetrics.timer("jwt.sign");
+    private static final Timer verifyTimer = CryptoMetrics.timer("jwt.verify");
+
     public static String generateToken(Long userId, String role) {
-        return Jwts.builder()
+        return signTimer.record(() -> Jwts.builder()
                 .setSubject(String.valueOf(userId))
                 .claim("role", role) // include role
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60)) // 1 hour expiry
                 .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+                .compact());
+    }
+
+    // Verify signature and expiry once and return all claims
+    public static Claims parseClaims(String token) {
+        return verifyTimer.record(() -> parser.parseClaimsJws(token).getBody());
     }
 
     public static Long extractUserId(String token) {
-        String userId = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-
-        return Long.parseLong(userId);
+        return Long.parseLong(parseClaims(token).getSubject());
     }
 
     public static String extractRole(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
+        return parseClaims(token).get("role", String.class);
     }
 
 }
-
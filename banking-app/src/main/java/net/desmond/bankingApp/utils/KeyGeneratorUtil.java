@@ -1,5 +1,7 @@
 package net.desmond.bankingApp.utils;
 
+import io.micrometer.core.instrument.Timer;
+
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -10,18 +12,35 @@ import java.util.Base64;
 
 public class KeyGeneratorUtil {
 
+    private static final Timer rsaGenerateTimer = CryptoMetrics.timer("rsa.generate");
+
+    // KeyFactory is not thread safe, one per thread instead of a provider lookup per decoded key
+    private static final ThreadLocal<KeyFactory> rsaKeyFactory = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyFactory.getInstance("RSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("RSA KeyFactory is not available.", e);
+        }
+    });
+
+    // SecureRandom is thread safe, seeding a new one per key is the expensive part
+    private static final SecureRandom secureRandom = new SecureRandom();
+
     // Generate AES Key (256-bit)
     public static SecretKey generateAESKey() throws Exception {
         KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-        keyGen.init(256, new SecureRandom()); // SecureRandom ensures randomness
+        keyGen.init(256, secureRandom); // SecureRandom ensures randomness
         return keyGen.generateKey();
     }
 
     // Generate RSA Key Pair (2048-bit)
     public static KeyPair generateRSAKeyPair() throws Exception {
+        Timer.Sample sample = Timer.start();
         KeyPairGenerator keyPairGen = KeyPairGenerator.getInstance("RSA");
         keyPairGen.initialize(2048); // RSA key size
-        return keyPairGen.generateKeyPair();
+        KeyPair keyPair = keyPairGen.generateKeyPair();
+        sample.stop(rsaGenerateTimer);
+        return keyPair;
     }
 
     // Convert SecretKey (AES) to Base64 String
@@ -44,15 +63,13 @@ public class KeyGeneratorUtil {
     public static PublicKey decodeBase64ToPublicKey(String base64Key) throws Exception {
         byte[] decodedKey = Base64.getDecoder().decode(base64Key);
         X509EncodedKeySpec keySpec = new X509EncodedKeySpec(decodedKey);
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        return keyFactory.generatePublic(keySpec);
+        return rsaKeyFactory.get().generatePublic(keySpec);
     }
 
     // Decode Base64 String back to PrivateKey (RSA)
     public static PrivateKey decodeBase64ToPrivateKey(String base64Key) throws Exception {
         byte[] decodedKey = Base64.getDecoder().decode(base64Key);
         PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(decodedKey);
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        return keyFactory.generatePrivate(keySpec);
+        return rsaKeyFactory.get().generatePrivate(keySpec);
     }
 }
\ No newline at end of file
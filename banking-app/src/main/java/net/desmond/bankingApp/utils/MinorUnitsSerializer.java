@@ -0,0 +1,24 @@
+package net.desmond.bankingApp.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+//writes a minor-unit long as a plain JSON decimal number (12345 -> 123.45), so clients keep seeing the same balance values
+public class MinorUnitsSerializer extends StdSerializer<Long> {
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MoneyUtil.MAX_FORMATTED_LENGTH]);
+
+    public MinorUnitsSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        char[] buffer = BUFFER.get();
+        int length = MoneyUtil.formatTo(value, buffer, 0);
+        gen.writeNumber(buffer, 0, length);
+    }
+}
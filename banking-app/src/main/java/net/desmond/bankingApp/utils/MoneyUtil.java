@@ -0,0 +1,146 @@
+package net.desmond.bankingApp.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+//money is carried as a long count of minor units (paise/cents), 12345 == 123.45
+//parse and formatTo work directly on chars so no BigDecimal or intermediate String is created on the common path
+public class MoneyUtil {
+
+    public static final int MAX_FORMATTED_LENGTH = 24;
+
+    //first byte of the binary form, legacy plaintexts are decimal strings so they can never start with it
+    private static final byte BINARY_FORMAT = 1;
+    private static final int BINARY_LENGTH = 9;
+
+    // Parse a decimal amount with at most two decimal places into minor units
+    public static long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) {
+            throw new IllegalArgumentException("Amount is empty.");
+        }
+
+        boolean negative = false;
+        char first = text.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+        }
+
+        try {
+            long units = 0;
+            long fraction = 0;
+            int fractionDigits = -1;
+            boolean hasDigits = false;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    hasDigits = true;
+                    if (fractionDigits < 0) {
+                        units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    } else {
+                        if (fractionDigits < 2) {
+                            fraction = fraction * 10 + (c - '0');
+                        } else if (c != '0') {
+                            throw new IllegalArgumentException("Amount has more than two decimal places.");
+                        }
+                        fractionDigits++;
+                    }
+                } else if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else if (c == 'e' || c == 'E') {
+                    //Double.toString of large JSON numbers, e.g. 1.5E7
+                    return parseExact(text.subSequence(negative ? start - 1 : start, end).toString());
+                } else {
+                    throw new IllegalArgumentException("Invalid amount: " + text);
+                }
+            }
+            if (!hasDigits) {
+                throw new IllegalArgumentException("Invalid amount: " + text);
+            }
+            if (fractionDigits == 1) {
+                fraction *= 10;
+            }
+
+            long minorUnits = Math.addExact(Math.multiplyExact(units, 100), fraction);
+            return negative ? -minorUnits : minorUnits;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is out of range.");
+        }
+    }
+
+    public static String format(long minorUnits) {
+        char[] buffer = new char[MAX_FORMATTED_LENGTH];
+        int length = formatTo(minorUnits, buffer, 0);
+        return new String(buffer, 0, length);
+    }
+
+    // Write minorUnits as a plain decimal ("-123.45") into buffer, returns the index after the last char
+    public static int formatTo(long minorUnits, char[] buffer, int offset) {
+        if (minorUnits == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Amount is out of range.");
+        }
+        long abs = Math.abs(minorUnits);
+        long units = abs / 100;
+        int cents = (int) (abs % 100);
+
+        int unitDigits = 1;
+        for (long rest = units / 10; rest > 0; rest /= 10) {
+            unitDigits++;
+        }
+        int end = offset + (minorUnits < 0 ? 1 : 0) + unitDigits + 3;
+
+        int pos = end;
+        buffer[--pos] = (char) ('0' + cents % 10);
+        buffer[--pos] = (char) ('0' + cents / 10);
+        buffer[--pos] = '.';
+        do {
+            buffer[--pos] = (char) ('0' + units % 10);
+            units /= 10;
+        } while (units > 0);
+        if (minorUnits < 0) {
+            buffer[--pos] = '-';
+        }
+        return end;
+    }
+
+    // Compact form that gets encrypted: a format byte followed by the big-endian long
+    public static byte[] encode(long minorUnits) {
+        byte[] bytes = new byte[BINARY_LENGTH];
+        bytes[0] = BINARY_FORMAT;
+        for (int i = BINARY_LENGTH - 1; i >= 1; i--) {
+            bytes[i] = (byte) minorUnits;
+            minorUnits >>>= 8;
+        }
+        return bytes;
+    }
+
+    public static long decode(byte[] bytes) {
+        if (bytes.length == BINARY_LENGTH && bytes[0] == BINARY_FORMAT) {
+            long minorUnits = 0;
+            for (int i = 1; i < BINARY_LENGTH; i++) {
+                minorUnits = (minorUnits << 8) | (bytes[i] & 0xff);
+            }
+            return minorUnits;
+        }
+        //rows written before minor units hold String.valueOf(double), rounded to the nearest minor unit
+        return new BigDecimal(new String(bytes, StandardCharsets.US_ASCII).trim())
+                .movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    private static long parseExact(String text) {
+        try {
+            return new BigDecimal(text).movePointRight(2).setScale(0, RoundingMode.UNNECESSARY).longValueExact();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount has more than two decimal places.");
+        }
+    }
+}
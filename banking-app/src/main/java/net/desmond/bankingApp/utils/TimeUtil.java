@@ -0,0 +1,33 @@
+package net.desmond.bankingApp.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+//transaction times are stored as UTC instants. months (filters, statements, insights) and the display string are taken
+//in the server's zone, the one the old LocalDateTime strings were written in, so existing history keeps its month
+public class TimeUtil {
+
+    public static final ZoneId ZONE = ZoneId.systemDefault();
+
+    //immutable and thread safe, built once instead of per row
+    private static final DateTimeFormatter DISPLAY = DateTimeFormatter.ofPattern("dd MMM, hh:mm a").withZone(ZONE);
+
+    public static String display(Instant instant) {
+        return instant == null ? null : DISPLAY.format(instant);
+    }
+
+    public static YearMonth month(Instant instant) {
+        return YearMonth.from(instant.atZone(ZONE));
+    }
+
+    public static Instant startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZONE).toInstant();
+    }
+
+    public static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZONE).toInstant();
+    }
+}
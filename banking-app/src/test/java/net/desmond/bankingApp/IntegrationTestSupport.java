@@ -0,0 +1,51 @@
+package net.desmond.bankingApp;
+
+import net.desmond.bankingApp.service.AccountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//base of the integration tests. subclasses without extra properties share one cached context and, through the test
+//profile, one database with every other class, so they create their own accounts and never assume an empty table
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public abstract class IntegrationTestSupport {
+
+    private static final AtomicInteger accounts = new AtomicInteger();
+
+    @MockitoBean
+    protected JavaMailSender mailSender;
+
+    @Autowired
+    protected AccountService accountService;
+
+    protected Long createAccount() throws Exception {
+        return createAccount("0");
+    }
+
+    //balance as entered on signup, "12.34"
+    protected Long createAccount(String balance) throws Exception {
+        return createAccount(null, balance);
+    }
+
+    //unique email per call, the name defaults to "Holder <n>"
+    protected Long createAccount(String name, String balance) throws Exception {
+        int n = accounts.incrementAndGet();
+        Map<String, Object> request = new HashMap<>();
+        request.put("accountHolderName", name == null ? "Holder " + n : name);
+        request.put("balance", balance);
+        request.put("accountHolderAddress", n + " Test Street");
+        request.put("accountHolderEmailAddress", "holder" + n + "@" + getClass().getSimpleName().toLowerCase() + ".test");
+        request.put("accountHolderRole", "user");
+        request.put("password", "test-password");
+        return accountService.createAccount(request).getAccountId();
+    }
+}
@@ -0,0 +1,59 @@
+package net.desmond.bankingApp.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTests {
+
+    @Test
+    void queuedCallerGetsTheReleasedPermitAndTheRestAreRefused() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(10), registry);
+
+        assertTrue(bulkhead.tryEnter());
+        assertEquals(1.0, registry.get("bank.bulkhead.active").gauge().value());
+
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            waiting.countDown();
+            try {
+                return bulkhead.tryEnter();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        waiting.await();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (registry.get("bank.bulkhead.queued").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        //the queue is full, no waiting
+        assertFalse(bulkhead.tryEnter());
+
+        bulkhead.exit();
+        assertTrue(queued.get(10, TimeUnit.SECONDS));
+        bulkhead.exit();
+
+        assertEquals(0.0, registry.get("bank.bulkhead.active").gauge().value());
+        assertEquals(2.0, registry.get("bank.bulkhead.calls").tag("result", "admitted").counter().count());
+        assertEquals(1.0, registry.get("bank.bulkhead.calls").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void waitIsBounded() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 4, Duration.ofMillis(20), new SimpleMeterRegistry());
+        assertTrue(bulkhead.tryEnter());
+        assertFalse(bulkhead.tryEnter());
+    }
+}
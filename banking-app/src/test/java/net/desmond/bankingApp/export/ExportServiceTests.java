@@ -0,0 +1,72 @@
+package net.desmond.bankingApp.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.transactions.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "bank.export.chunk-size=2")
+class ExportServiceTests extends IntegrationTestSupport {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void exportsMatchTheListEndpointsAcrossChunks() throws Exception {
+        //more accounts than fit in two chunks
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(createAccount(i == 0 ? "Doe, \"Jane\"" : null, "0"));
+        }
+        Long first = ids.get(0);
+        accountService.depositAmount(first, 12_34);
+        accountService.sendToAccount(first, ids.get(1), 2_00);
+        var account = accountService.getAccountById(first);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        exportService.exportAccounts(ExportFormat.NDJSON, ndjson);
+        List<String> lines = ndjson.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(accountService.getAllAccounts().size(), lines.size());
+        //other test classes share the table, find the row by id
+        JsonNode exported = null;
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.get("accountId").asLong() == first) {
+                exported = node;
+            }
+        }
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(account)), exported);
+        assertEquals("10.34", exported.get("balance").asText());
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        exportService.exportAccounts(ExportFormat.CSV, csv);
+        List<String> records = csv.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals("accountId,accountHolderName,balance,accountHolderAddress,accountHolderEmailAddress", records.get(0));
+        assertTrue(records.contains(first + ",\"Doe, \"\"Jane\"\"\",10.34,"
+                + account.getAccountHolderAddress() + "," + account.getAccountHolderEmailAddress()));
+        assertEquals(lines.size() + 1, records.size());
+
+        ByteArrayOutputStream transactions = new ByteArrayOutputStream();
+        exportService.exportTransactions(ExportFormat.CSV, transactions);
+        List<String> transactionRecords = transactions.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(transactionRepository.count() + 1, transactionRecords.size());
+        assertEquals("transId,senderId,receiverId,amount,status,timestamp", transactionRecords.get(0));
+    }
+}
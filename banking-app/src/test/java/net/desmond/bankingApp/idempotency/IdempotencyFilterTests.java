@@ -0,0 +1,97 @@
+package net.desmond.bankingApp.idempotency;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.utils.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class IdempotencyFilterTests extends IntegrationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void repeatedDepositIsReplayedNotChargedTwice() throws Exception {
+        Long id = createAccount();
+        String token = "Bearer " + JwtUtil.generateToken(id, "user");
+
+        String first = mockMvc.perform(put("/bank/accounts/deposit").header("Authorization", token)
+                        .header(IdempotencyFilter.HEADER, "deposit-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":\"10.00\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(put("/bank/accounts/deposit").header("Authorization", token)
+                        .header(IdempotencyFilter.HEADER, "deposit-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":\"10.00\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andExpect(content().json(first, JsonCompareMode.STRICT));
+        assertEquals(10_00, accountService.getAccountById(id).getBalance());
+
+        //same key, different request
+        mockMvc.perform(put("/bank/accounts/deposit").header("Authorization", token)
+                        .header(IdempotencyFilter.HEADER, "deposit-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":\"20.00\"}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string(IdempotencyFilter.HEADER + " was already used for a different request."));
+
+        //keys are per caller, and requests without a key are not remembered
+        Long other = createAccount();
+        mockMvc.perform(put("/bank/accounts/deposit").header("Authorization", "Bearer " + JwtUtil.generateToken(other, "user"))
+                        .header(IdempotencyFilter.HEADER, "deposit-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":\"10.00\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(put("/bank/accounts/deposit").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":\"10.00\"}"))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(30_00, accountService.getAccountById(id).getBalance());
+        assertEquals(10_00, accountService.getAccountById(other).getBalance());
+    }
+
+    @Test
+    void runningRequestIsNotTakenOverUntilItsInstanceStopsRenewing() throws Exception {
+        Long id = createAccount();
+        assertEquals(IdempotencyService.Result.STARTED, idempotencyService.begin(id, "slow-1", "hash").result());
+
+        //outlived the lease, but this instance is still renewing it
+        age(id, "slow-1");
+        idempotencyService.heartbeat();
+        assertEquals(IdempotencyService.Result.IN_PROGRESS, idempotencyService.begin(id, "slow-1", "hash").result());
+
+        //nobody renewed it for a lease, the owner is gone
+        age(id, "slow-1");
+        assertEquals(IdempotencyService.Result.STARTED, idempotencyService.begin(id, "slow-1", "hash").result());
+        idempotencyService.release(id, "slow-1");
+    }
+
+    private void age(Long ownerId, String key) {
+        IdempotencyRecord record = idempotencyRecordRepository.findByOwnerIdAndKey(ownerId, key).orElseThrow();
+        Instant longAgo = Instant.now().minus(Duration.ofHours(1));
+        record.setCreatedAt(longAgo);
+        record.setHeartbeatAt(longAgo);
+        idempotencyRecordRepository.save(record);
+    }
+}
@@ -0,0 +1,81 @@
+package net.desmond.bankingApp.insights;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.transactions.BatchTransferLeg;
+import net.desmond.bankingApp.transactions.TransactionDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonthlyAggregateServiceTests extends IntegrationTestSupport {
+
+    @Autowired
+    private MonthlyAggregateService monthlyAggregateService;
+
+    @Autowired
+    private MonthlyAggregateRepository monthlyAggregateRepository;
+
+    @Autowired
+    private MonthlyAggregateBackfill monthlyAggregateBackfill;
+
+    @Autowired
+    private MonthlyAggregateBackfillStateRepository monthlyAggregateBackfillStateRepository;
+
+    @Test
+    void aggregatesFollowTheHistory() throws Exception {
+        Long payer = createAccount();
+        Long payee = createAccount();
+
+        accountService.depositAmount(payer, 100_00);
+        accountService.sendToAccount(payer, payee, 30_00);
+        assertThrows(ResponseStatusException.class, () -> accountService.sendToAccount(payer, payee, 500_00));
+        accountService.sendToMany(payer, List.of(new BatchTransferLeg(payee, 10_00), new BatchTransferLeg(payee, 5_00)), true);
+        accountService.requestFromAccount(payee, payer, 7_00);
+        accountService.withdrawAmount(payee, 2_00);
+
+        assertEquals(new MonthlyInsight(YearMonth.now().toString(), 100_00, 45_00,
+                Map.of("deposit", 1, "success", 3, "failed", 1, "pending", 1)), current(payer));
+        assertEquals(new MonthlyInsight(YearMonth.now().toString(), 45_00, 2_00,
+                Map.of("success", 3, "failed", 1, "pending", 1, "withdraw", 1)), current(payee));
+
+        //executing a request replaces the pending row with a successful one
+        Long pendingId = accountService.getUserPendingTransactions(payer).get(0).getTransId();
+        accountService.executePendingTransaction(pendingId);
+        assertEquals(new MonthlyInsight(YearMonth.now().toString(), 100_00, 52_00,
+                Map.of("deposit", 1, "success", 4, "failed", 1)), current(payer));
+
+        TransactionDto deposit = accountService.getAllTransactionsSent(payer).stream()
+                .filter(transaction -> "deposit".equals(transaction.getStatus()))
+                .findFirst().orElseThrow();
+        accountService.deleteTransactionById(deposit.getTransId());
+        MonthlyInsight afterDelete = current(payer);
+        assertEquals(0, afterDelete.moneyIn());
+        assertEquals(Map.of("success", 4, "failed", 1), afterDelete.counts());
+
+        //rebuilt from the history it comes out the same
+        MonthlyInsight payeeBefore = current(payee);
+        monthlyAggregateRepository.deleteAll();
+        monthlyAggregateBackfillStateRepository.deleteAll();
+        monthlyAggregateBackfill.afterSingletonsInstantiated();
+        monthlyAggregateBackfill.run(null);
+        assertTrue(monthlyAggregateBackfillStateRepository.findById(MonthlyAggregateBackfillState.ID).orElseThrow().isDone());
+        assertEquals(afterDelete, current(payer));
+        assertEquals(payeeBefore, current(payee));
+
+        List<MonthlyInsight> year = monthlyAggregateService.insights(payer, YearMonth.now().minusMonths(11), YearMonth.now());
+        assertEquals(12, year.size());
+        assertEquals(new MonthlyInsight(YearMonth.now().minusMonths(1).toString(), 0, 0, Map.of()), year.get(10));
+    }
+
+    private MonthlyInsight current(Long accountId) throws Exception {
+        return monthlyAggregateService.insights(accountId, YearMonth.now(), YearMonth.now()).get(0);
+    }
+}
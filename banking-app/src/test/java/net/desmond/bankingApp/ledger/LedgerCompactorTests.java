@@ -0,0 +1,78 @@
+package net.desmond.bankingApp.ledger;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.insights.MonthlyAggregateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "bank.ledger.snapshot.min-entries=3")
+class LedgerCompactorTests extends IntegrationTestSupport {
+
+    @Autowired
+    private LedgerCompactor ledgerCompactor;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private MonthlyAggregateRepository monthlyAggregateRepository;
+
+    @Test
+    void balanceSurvivesCompactionAndEntriesAreKept() throws Exception {
+        Long payer = createAccount("100.00");
+        Long payee = createAccount("0");
+
+        accountService.depositAmount(payer, 25_00);
+        accountService.sendToAccount(payer, payee, 40_00);
+        accountService.withdrawAmount(payee, 15_00);
+        accountService.depositAmount(payer, 5_00);
+        assertEquals(90_00, accountService.getAccountById(payer).getBalance());
+        assertEquals(25_00, accountService.getAccountById(payee).getBalance());
+
+        List<Long> both = List.of(payer, payee);
+        ledgerCompactor.compact();
+        long entries = ledgerEntryRepository.findAfter(both, 0L).size();
+        //only the payer has three entries, the payee two
+        assertEquals(List.of(payer), balanceSnapshotRepository.findLatestByAccountIds(both).stream()
+                .map(BalanceSnapshot::getAccountId).toList());
+        assertEquals(90_00, accountService.getAccountById(payer).getBalance());
+
+        accountService.depositAmount(payer, 1_00);
+        accountService.depositAmount(payer, 1_00);
+        accountService.depositAmount(payer, 1_00);
+        ledgerCompactor.compact();
+
+        //the newer snapshot replaced the older one, entries are append only
+        assertEquals(1, balanceSnapshotRepository.findAll().stream().filter(snapshot -> snapshot.getAccountId().equals(payer)).count());
+        assertEquals(entries + 3, ledgerEntryRepository.findAfter(both, 0L).size());
+        assertEquals(93_00, accountService.getAccountById(payer).getBalance());
+        assertEquals(93_00 + 25_00, accountService.getAllAccounts().stream()
+                .filter(account -> both.contains(account.getAccountId()))
+                .mapToLong(account -> account.getBalance()).sum());
+    }
+
+    @Test
+    void deletedAccountTakesItsLedgerAlong() throws Exception {
+        Long holder = createAccount("10.00");
+        for (int i = 0; i < 3; i++) {
+            accountService.depositAmount(holder, 1_00);
+        }
+        ledgerCompactor.compact();
+        assertTrue(balanceSnapshotRepository.findFirstByAccountIdOrderByIdDesc(holder).isPresent());
+
+        accountService.deleteAccountById(holder);
+
+        assertTrue(ledgerEntryRepository.findAfter(holder, 0L).isEmpty());
+        assertTrue(balanceSnapshotRepository.findFirstByAccountIdOrderByIdDesc(holder).isEmpty());
+        assertTrue(monthlyAggregateRepository.findRange(holder, "0000-01", "9999-12").isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package net.desmond.bankingApp.mapper;
+
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.secureVault.AccountKeyManager;
+import net.desmond.bankingApp.utils.EncryptionUtil;
+import net.desmond.bankingApp.utils.KeyGeneratorUtil;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LazyAccountTests {
+
+    @Test
+    void untouchedColumnsAreLeftAsLoaded() throws Exception {
+        SecretKey key = KeyGeneratorUtil.generateAESKey();
+        AccountKeyManager accountKeyManager = mock(AccountKeyManager.class);
+        when(accountKeyManager.getAesKey(any(), any())).thenReturn(key);
+
+        Account row = new Account();
+        row.setAccountId(7L);
+        row.setAesEncryptedKey("wrapped");
+        row.setAccountHolderName("not decryptable, must never be read");
+        row.setAccountHolderAddress(EncryptionUtil.encryptWithAES("Old Street", key));
+        row.setVerificationStatus(EncryptionUtil.encryptWithAES("verified", key));
+        String name = row.getAccountHolderName();
+
+        LazyAccount lazy = Mapper.mapToLazyAccount(row, accountKeyManager);
+        verify(accountKeyManager, never()).getAesKey(any(), any());
+
+        assertEquals("verified", lazy.getVerificationStatus());
+        assertEquals("verified", lazy.getVerificationStatus());
+        lazy.setAccountHolderAddress("New Street");
+        assertEquals("New Street", lazy.getAccountHolderAddress());
+
+        assertSame(row, lazy.writeBack());
+        assertEquals("New Street", EncryptionUtil.decryptWithAES(row.getAccountHolderAddress(), key));
+        assertEquals(EncryptionUtil.encryptWithAES("verified", key), row.getVerificationStatus());
+        assertEquals(name, row.getAccountHolderName());
+        verify(accountKeyManager, times(1)).getAesKey(7L, "wrapped");
+    }
+}
@@ -0,0 +1,103 @@
+package net.desmond.bankingApp.onboarding;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.entity.Account;
+import net.desmond.bankingApp.repository.OutboundEmailRepository;
+import net.desmond.bankingApp.service.impl.AccountIdSequenceBump;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "bank.onboarding.chunk-size=3")
+class BulkOnboardingServiceTests extends IntegrationTestSupport {
+
+    @Autowired
+    private BulkOnboardingService bulkOnboardingService;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @Autowired
+    private AccountIdSequenceBump accountIdSequenceBump;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void importsValidRowsAndReportsBadOnes() throws Exception {
+        long queuedBefore = outboundEmailRepository.count();
+
+        BulkOnboardingReport report = bulkOnboardingService.importAccounts(List.of(
+                row("Ada", "10.50", "ada@bulk.test"),
+                row("Bob", "not money", "bob@bulk.test"),
+                row("Cy", "0", "ada@bulk.test"),
+                row("Dee", "42", "dee@bulk.test"),
+                row("Eve", "1", "eve@bulk.test")));
+
+        assertEquals(3, report.created());
+        assertEquals(2, report.failed());
+        assertEquals(List.of("created", "failed", "failed", "created", "created"),
+                report.results().stream().map(BulkAccountResult::status).toList());
+        assertEquals("Email appears more than once in the upload.", report.results().get(2).error());
+
+        BulkAccountResult ada = report.results().get(0);
+        assertEquals(10_50, accountService.getAccountById(ada.accountId()).getBalance());
+        assertEquals("ada@bulk.test", accountService.getAccountById(ada.accountId()).getAccountHolderEmailAddress());
+        assertEquals(queuedBefore + 3, outboundEmailRepository.count());
+
+        //already exists now
+        BulkOnboardingReport again = bulkOnboardingService.importAccounts(List.of(row("Ada", "1", "ada@bulk.test")));
+        assertEquals("Account with this Email already exists.", again.results().get(0).error());
+        assertNull(again.results().get(0).accountId());
+    }
+
+    @Test
+    void importsQuotedCsv() throws Exception {
+        String csv = "﻿accountHolderEmailAddress,accountHolderName,balance,accountHolderAddress,accountHolderRole,password\r\n"
+                + "csv1@bulk.test,\"Doe, Jane\",5.00,\"12 \"\"Main\"\" St\nFlat 2\",user,secret\r\n"
+                + "\r\n"
+                + "csv2@bulk.test,John,,Somewhere,user,secret\n";
+
+        BulkOnboardingReport report = bulkOnboardingService.importAccounts(new CsvAccountReader(new StringReader(csv)));
+
+        assertEquals(1, report.created());
+        assertEquals("Missing balance.", report.results().get(1).error());
+        var jane = accountService.getAccountById(report.results().get(0).accountId());
+        assertEquals("Doe, Jane", jane.getAccountHolderName());
+        assertEquals("12 \"Main\" St\nFlat 2", jane.getAccountHolderAddress());
+    }
+
+    @Test
+    void sequenceIsMovedPastExistingIds() {
+        jdbcTemplate.update("INSERT INTO accounts (account_id, email_blind_index) VALUES (?, ?)", 900_000L, "legacy-row");
+        try {
+            accountIdSequenceBump.bump();
+
+            Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + Account.ID_SEQUENCE, Long.class);
+            assertTrue(next > 900_000L, "sequence at " + next);
+        } finally {
+            jdbcTemplate.update("DELETE FROM accounts WHERE account_id = ?", 900_000L);
+        }
+    }
+
+    private static Map<String, Object> row(String name, String balance, String email) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("accountHolderName", name);
+        row.put("balance", balance);
+        row.put("accountHolderAddress", name + " Street");
+        row.put("accountHolderEmailAddress", email);
+        row.put("accountHolderRole", "user");
+        row.put("password", "bulk-password");
+        return row;
+    }
+}
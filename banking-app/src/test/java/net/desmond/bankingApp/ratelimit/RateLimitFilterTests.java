@@ -0,0 +1,51 @@
+package net.desmond.bankingApp.ratelimit;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.utils.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//refill is slow enough that nothing comes back while the test runs
+@TestPropertySource(properties = {
+        "bank.rate-limit.ip.capacity=5",
+        "bank.rate-limit.ip.refill-per-second=0.01",
+        "bank.rate-limit.subject.capacity=3",
+        "bank.rate-limit.subject.refill-per-second=0.01",
+        "bank.rate-limit.costs=GET /bank/is-admin=2"
+})
+class RateLimitFilterTests extends IntegrationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void subjectAndIpBucketsRunOutSeparately() throws Exception {
+        String first = "Bearer " + JwtUtil.generateToken(1L, "admin");
+        String second = "Bearer " + JwtUtil.generateToken(2L, "admin");
+
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", first))
+                .andExpect(status().isOk());
+        //1 token left for the subject, the ip still has 3
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", first))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(content().string("Too many requests. Please try again later."));
+
+        //another subject from the same address, then the address is out
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", second))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/bank/is-admin"))
+                .andExpect(status().isTooManyRequests());
+        //cheaper routes still fit in what is left
+        mockMvc.perform(get("/bank/is-admin-nope"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,48 @@
+package net.desmond.bankingApp.secureVault;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class KeyPairPoolTests {
+
+    @Test
+    void handsOutPooledPairsOnceFilled() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        KeyPairPool pool = new KeyPairPool(registry, 2);
+        pool.start();
+        try {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (pool.depth() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2.0, registry.get("bank.keys.pool.depth").gauge().value());
+
+            KeyPair keyPair = pool.take();
+
+            assertNotNull(keyPair.getPrivate());
+            assertEquals(1.0, registry.get("bank.keys.pool.takes").tag("result", "hit").counter().count());
+            assertEquals(0.0, registry.get("bank.keys.pool.takes").tag("result", "miss").counter().count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void generatesInlineWhenEmpty() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        KeyPairPool pool = new KeyPairPool(registry, 0);
+        pool.start();
+
+        KeyPair keyPair = pool.take();
+
+        assertNotNull(keyPair.getPublic());
+        assertEquals(0.0, registry.get("bank.keys.pool.depth").gauge().value());
+        assertEquals(1.0, registry.get("bank.keys.pool.takes").tag("result", "miss").counter().count());
+    }
+}
@@ -0,0 +1,45 @@
+package net.desmond.bankingApp.security;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.utils.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//401 bodies must stay the plain strings the frontend shows
+class JwtAuthenticationFilterTests extends IntegrationTestSupport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void adminTokenIsAccepted() throws Exception {
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", "Bearer " + JwtUtil.generateToken(1L, "admin")))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+    }
+
+    @Test
+    void userTokenIsForbiddenOnAdminEndpoint() throws Exception {
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", "Bearer " + JwtUtil.generateToken(2L, "user")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void missingTokenIsRejected() throws Exception {
+        mockMvc.perform(get("/bank/is-admin"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Missing or malformed token."));
+    }
+
+    @Test
+    void forgedTokenIsRejected() throws Exception {
+        mockMvc.perform(get("/bank/is-admin").header("Authorization", "Bearer not.a.jwt"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Invalid token. Please login again."));
+    }
+}
@@ -0,0 +1,83 @@
+package net.desmond.bankingApp.service.impl;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.transactions.BatchTransferLeg;
+import net.desmond.bankingApp.transactions.BatchTransferResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchTransferTests extends IntegrationTestSupport {
+
+    @Test
+    void atomicBatchMovesEverythingOrNothing() throws Exception {
+        Long sender = createAccount("100.00");
+        Long first = createAccount("0");
+        Long second = createAccount("0");
+
+        ResponseStatusException rejected = assertThrows(ResponseStatusException.class, () -> accountService.sendToMany(sender,
+                List.of(new BatchTransferLeg(first, 60_00), new BatchTransferLeg(second, 60_00)), true));
+        assertEquals("Insufficient Balance.", rejected.getReason());
+        assertEquals(100_00, balance(sender));
+        assertEquals(List.of("failed", "failed"), statuses(first, second));
+
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class, () -> accountService.sendToMany(sender,
+                List.of(new BatchTransferLeg(first, 1_00), new BatchTransferLeg(-1L, 1_00)), true));
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        assertEquals(100_00, balance(sender));
+
+        BatchTransferResult result = accountService.sendToMany(sender,
+                List.of(new BatchTransferLeg(first, 40_00), new BatchTransferLeg(second, 35_50), new BatchTransferLeg(first, 4_50)), true);
+
+        assertEquals(3, result.succeeded());
+        assertEquals(20_00, result.sender().getBalance());
+        assertEquals(20_00, balance(sender));
+        assertEquals(44_50, balance(first));
+        assertEquals(35_50, balance(second));
+        assertEquals(5, accountService.getAllTransactionsSent(sender).size());
+    }
+
+    @Test
+    void bestEffortBatchFailsLegsOnTheirOwn() throws Exception {
+        Long sender = createAccount("50.00");
+        Long first = createAccount("0");
+        Long second = createAccount("0");
+
+        BatchTransferResult result = accountService.sendToMany(sender, List.of(
+                new BatchTransferLeg(first, 30_00),
+                new BatchTransferLeg(-1L, 1_00),
+                new BatchTransferLeg(second, 30_00),
+                new BatchTransferLeg(sender, 1_00),
+                new BatchTransferLeg(second, 20_00)), false);
+
+        assertEquals(2, result.succeeded());
+        assertEquals(List.of("success", "failed", "failed", "failed", "success"),
+                result.legs().stream().map(BatchTransferResult.Leg::status).toList());
+        assertEquals("Receiver Account does not exist.", result.legs().get(1).error());
+        assertEquals("Insufficient Balance.", result.legs().get(2).error());
+        assertEquals("Cannot send money to the same account.", result.legs().get(3).error());
+        assertEquals(0, balance(sender));
+        assertEquals(30_00, balance(first));
+        assertEquals(20_00, balance(second));
+        //the uncovered leg is recorded, the invalid ones are not
+        assertEquals(3, accountService.getAllTransactionsSent(sender).size());
+    }
+
+    private long balance(Long id) throws Exception {
+        return accountService.getAccountById(id).getBalance();
+    }
+
+    private List<String> statuses(Long... receivers) throws Exception {
+        List<String> statuses = new ArrayList<>();
+        for (Long receiver : receivers) {
+            accountService.getAllTransactionsReceived(receiver).forEach(transaction -> statuses.add(transaction.getStatus()));
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,102 @@
+package net.desmond.bankingApp.service.impl;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.dto.AccountDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//many threads moving money between a small set of overlapping accounts, total balance must be conserved.
+//the default build runs a small round, the tagged throughput run goes with -Ploadtest and its sizes can be raised
+//with -Dbenchmark.accounts, -Dbenchmark.threads and -Dbenchmark.transfers
+class ConcurrentTransferBenchmarkTests extends IntegrationTestSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentTransferBenchmarkTests.class);
+    private static final long OPENING_BALANCE = 1000_00; //minor units
+
+    @Test
+    void concurrentTransfersKeepTotalBalance() throws Exception {
+        long attempted = run(4, 4, 25);
+        assertTrue(attempted > 0);
+    }
+
+    @Test
+    @Tag("load")
+    void throughput() throws Exception {
+        int accounts = Integer.getInteger("benchmark.accounts", 8);
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int transfers = Integer.getInteger("benchmark.transfers", 200);
+
+        long startedAt = System.nanoTime();
+        long attempted = run(accounts, threads, transfers);
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        log.info("{} accounts, {} threads: {} transfers in {}s, {} transfers/s",
+                accounts, threads, attempted, String.format("%.2f", seconds), String.format("%.1f", attempted / seconds));
+    }
+
+    //returns how many transfers were attempted, completed or rejected for balance
+    private long run(int accounts, int threads, int transfersPerThread) throws Exception {
+        List<Long> accountIds = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            accountIds.add(createAccount("1000.00"));
+        }
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    Long sender = accountIds.get(random.nextInt(accounts));
+                    Long receiver = accountIds.get(random.nextInt(accounts));
+                    if (sender.equals(receiver)) {
+                        continue;
+                    }
+                    try {
+                        accountService.sendToAccount(sender, receiver, random.nextInt(1_00, 50_00));
+                        completed.incrementAndGet();
+                    } catch (ResponseStatusException e) {
+                        rejected.incrementAndGet(); //insufficient balance
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = 0;
+        for (Long accountId : accountIds) {
+            AccountDto account = accountService.getAccountById(accountId);
+            assertTrue(account.getBalance() >= 0, "balance went negative for account " + accountId);
+            total += account.getBalance();
+        }
+        assertEquals(accounts * OPENING_BALANCE, total);
+        return completed.get() + rejected.get();
+    }
+}
@@ -0,0 +1,100 @@
+package net.desmond.bankingApp.statements;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.transactions.Transaction;
+import net.desmond.bankingApp.transactions.TransactionRepository;
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementServiceTests extends IntegrationTestSupport {
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CachedStatementRepository cachedStatementRepository;
+
+    @Test
+    void closedMonthIsCachedUntilOneOfItsTransactionsIsDeleted() throws Exception {
+        Long payer = createAccount();
+        Long payee = createAccount();
+        accountService.depositAmount(payer, 50_00);
+        accountService.sendToAccount(payer, payee, 20_00);
+        accountService.withdrawAmount(payer, 5_00);
+
+        //move the history into last month
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        List<Transaction> history = transactionRepository.findTransactionById(payer);
+        for (Transaction transaction : history) {
+            transaction.setOccurredAt(TimeUtil.toInstant(lastMonth.atDay(15).atTime(10, 30)));
+        }
+        transactionRepository.saveAll(history);
+
+        String csv = new String(statementService.statement(payer, lastMonth, StatementFormat.CSV), StandardCharsets.UTF_8);
+        List<String> records = csv.lines().toList();
+        assertEquals("transId,senderId,receiverId,status,timestamp,moneyIn,moneyOut", records.get(0));
+        assertEquals(4, records.size());
+        assertTrue(records.get(1).contains(",deposit,"));
+        assertTrue(records.get(1).endsWith(",50.00,0.00"));
+        assertTrue(records.get(2).endsWith(",0.00,20.00"));
+        assertTrue(records.get(3).endsWith(",0.00,5.00"));
+        assertTrue(cached(payer, lastMonth, StatementFormat.CSV));
+
+        byte[] pdf = statementService.statement(payer, lastMonth, StatementFormat.PDF);
+        assertEquals("%PDF", new String(pdf, 0, 4, StandardCharsets.US_ASCII));
+        assertArrayEquals(pdf, statementService.statement(payer, lastMonth, StatementFormat.PDF));
+        assertTrue(cached(payer, lastMonth, StatementFormat.PDF));
+
+        //the payee's view of the same month, then the transfer is deleted and both cached months go
+        String payeeCsv = new String(statementService.statement(payee, lastMonth, StatementFormat.CSV), StandardCharsets.UTF_8);
+        assertTrue(payeeCsv.lines().toList().get(1).endsWith(",20.00,0.00"));
+        assertTrue(cached(payee, lastMonth, StatementFormat.CSV));
+
+        accountService.deleteTransactionById(history.get(1).getTransId());
+        assertFalse(cached(payer, lastMonth, StatementFormat.CSV));
+        assertFalse(cached(payer, lastMonth, StatementFormat.PDF));
+        assertFalse(cached(payee, lastMonth, StatementFormat.CSV));
+        assertEquals(3, new String(statementService.statement(payer, lastMonth, StatementFormat.CSV), StandardCharsets.UTF_8).lines().count());
+
+        //the current month is rendered every time
+        statementService.statement(payer, YearMonth.now(), StatementFormat.CSV);
+        assertFalse(cached(payer, YearMonth.now(), StatementFormat.CSV));
+    }
+
+    @Test
+    void deletingADepositEvictsItsMonth() throws Exception {
+        Long holder = createAccount();
+        accountService.depositAmount(holder, 10_00);
+
+        //a deposit is sent from and to the same account
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        Transaction deposit = transactionRepository.findTransactionById(holder).get(0);
+        assertEquals(deposit.getSenderId(), deposit.getReceiverId());
+        deposit.setOccurredAt(TimeUtil.toInstant(lastMonth.atDay(1).atTime(9, 0)));
+        transactionRepository.save(deposit);
+
+        statementService.statement(holder, lastMonth, StatementFormat.CSV);
+        assertTrue(cached(holder, lastMonth, StatementFormat.CSV));
+
+        accountService.deleteTransactionById(deposit.getTransId());
+        assertFalse(cached(holder, lastMonth, StatementFormat.CSV));
+        assertEquals(1, new String(statementService.statement(holder, lastMonth, StatementFormat.CSV), StandardCharsets.UTF_8).lines().count());
+    }
+
+    private boolean cached(Long accountId, YearMonth month, StatementFormat format) {
+        return cachedStatementRepository.findByAccountIdAndStatementMonthAndFormat(accountId, month.toString(), format.name()).isPresent();
+    }
+}
@@ -0,0 +1,71 @@
+package net.desmond.bankingApp.transactions;
+
+import net.desmond.bankingApp.IntegrationTestSupport;
+import net.desmond.bankingApp.utils.TimeUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionTimestampBackfillTests extends IntegrationTestSupport {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTimestampBackfill transactionTimestampBackfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void legacyRowsGetTheirTimeAndMatchMonthFilters() throws Exception {
+        Long id = createAccount();
+        accountService.depositAmount(id, 10_00);
+        accountService.withdrawAmount(id, 1_00);
+
+        //the deposit as an old row would look
+        Long deposit = transactionRepository.findTransactionById(id).stream()
+                .filter(transaction -> "deposit".equals(transaction.getStatus()))
+                .findFirst().orElseThrow().getTransId();
+        LocalDateTime written = LocalDateTime.parse("2024-03-05T10:15:30.123");
+        jdbcTemplate.update("UPDATE transaction_history SET occurred_at = NULL, timestamp = ? WHERE trans_id = ?", written.toString(), deposit);
+
+        transactionTimestampBackfill.run(null);
+
+        assertEquals(TimeUtil.toInstant(written), transactionRepository.findById(deposit).orElseThrow().getOccurredAt());
+
+        TransactionFilter march = new TransactionFilter();
+        march.setMonth("2024-03");
+        List<TransactionDto> found = accountService.searchTransactions(id, march, null, null).getTransactions();
+        assertEquals(1, found.size());
+        assertEquals(deposit, found.get(0).getTransId());
+        assertEquals(TimeUtil.toInstant(written).toEpochMilli(), found.get(0).getTimestampMillis());
+        assertEquals(1, transactionRepository.findAccountRange(id, TimeUtil.startOf(YearMonth.now()),
+                TimeUtil.startOf(YearMonth.now().plusMonths(1))).size());
+    }
+
+    @Test
+    void unparseableRowStopsTheBackfill() throws Exception {
+        Long id = createAccount();
+        accountService.depositAmount(id, 10_00);
+        Transaction deposit = transactionRepository.findTransactionById(id).get(0);
+
+        jdbcTemplate.update("UPDATE transaction_history SET occurred_at = NULL, timestamp = ? WHERE trans_id = ?", "last tuesday", deposit.getTransId());
+        try {
+            assertThrows(IllegalStateException.class, () -> transactionTimestampBackfill.run(null));
+            //left without a time rather than given one
+            assertNull(transactionRepository.findById(deposit.getTransId()).orElseThrow().getOccurredAt());
+        } finally {
+            //the database is shared, the next context to start would run into it
+            jdbcTemplate.update("DELETE FROM transaction_history WHERE trans_id = ?", deposit.getTransId());
+        }
+    }
+}
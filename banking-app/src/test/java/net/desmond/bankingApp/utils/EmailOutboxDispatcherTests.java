@@ -0,0 +1,93 @@
+package net.desmond.bankingApp.utils;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import net.desmond.bankingApp.entity.OutboundEmail;
+import net.desmond.bankingApp.repository.OutboundEmailRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//queued mails delivered to an in-process SMTP server, failed sends stay queued with a backoff
+//a real mail sender pointed at greenmail instead of the mocked one in IntegrationTestSupport
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=support@silverstone.test",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false"
+})
+class EmailOutboxDispatcherTests {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @BeforeEach
+    void clearOutbox() {
+        outboundEmailRepository.deleteAll();
+    }
+
+    @Test
+    void queuedMailsAreDeliveredAndRemoved() throws Exception {
+        emailService.sendVerificationEmail("first@silverstone.test", "Silverstone: Email Verification", "link one");
+        emailService.sendVerificationEmail("second@silverstone.test", "Silverstone - Temporary Password", "password two");
+        assertEquals(0, greenMail.getReceivedMessages().length);
+
+        dispatcher.dispatch();
+
+        //greenmail can still be storing the second chunk's message when the send returns
+        assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("support@silverstone.test", received[0].getFrom()[0].toString());
+        assertEquals(0, outboundEmailRepository.count());
+    }
+
+    @Test
+    void failedSendIsRescheduledWithBackoff() {
+        greenMail.stop();
+        emailService.sendVerificationEmail("third@silverstone.test", "Silverstone: Email Verification", "link three");
+
+        dispatcher.dispatch();
+
+        List<OutboundEmail> queued = outboundEmailRepository.findAll();
+        assertEquals(1, queued.size());
+        OutboundEmail email = queued.get(0);
+        assertEquals("pending", email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getLastError());
+        assertTrue(email.getNextAttemptAt().isAfter(Instant.now()));
+
+        //not due yet, a second pass leaves it alone
+        greenMail.start();
+        dispatcher.dispatch();
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        assertEquals(1, outboundEmailRepository.findAll().get(0).getAttempts());
+    }
+}
@@ -0,0 +1,49 @@
+package net.desmond.bankingApp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+//batch methods must stay byte-compatible with the per-field ones, rows written either way are read back by both
+class EncryptionUtilTests {
+
+    @Test
+    void batchEncryptMatchesSingleFieldEncrypt() throws Exception {
+        SecretKey key = KeyGeneratorUtil.generateAESKey();
+        byte[] balance = MoneyUtil.encode(1234_56);
+
+        String[] encrypted = EncryptionUtil.encryptAllWithAES(key, "Jane Doe".getBytes(), balance, null);
+
+        assertEquals(EncryptionUtil.encryptWithAES("Jane Doe", key), encrypted[0]);
+        assertEquals(EncryptionUtil.encryptBytesWithAES(balance, key), encrypted[1]);
+        assertNull(encrypted[2]);
+    }
+
+    @Test
+    void batchDecryptReadsSingleFieldCiphertext() throws Exception {
+        SecretKey key = KeyGeneratorUtil.generateAESKey();
+
+        byte[][] decrypted = EncryptionUtil.decryptAllWithAES(key,
+                EncryptionUtil.encryptWithAES("verified", key),
+                EncryptionUtil.encryptBytesWithAES(MoneyUtil.encode(-5_00), key));
+
+        assertArrayEquals("verified".getBytes(), decrypted[0]);
+        assertEquals(-5_00, MoneyUtil.decode(decrypted[1]));
+    }
+
+    @Test
+    void wrappedKeyRoundTripsThroughReusedCiphers() throws Exception {
+        SecretKey key = KeyGeneratorUtil.generateAESKey();
+        var rsa = KeyGeneratorUtil.generateRSAKeyPair();
+        String wrapped = EncryptionUtil.encryptAESKeyWithRSA(key, rsa.getPublic());
+
+        for (int i = 0; i < 3; i++) {
+            var privateKey = KeyGeneratorUtil.decodeBase64ToPrivateKey(KeyGeneratorUtil.encodeKeyToBase64(rsa.getPrivate()));
+            assertArrayEquals(key.getEncoded(), EncryptionUtil.decryptAESKeyWithRSA(wrapped, privateKey).getEncoded());
+        }
+    }
+}
@@ -11,6 +11,9 @@ const AdminDashboard = () => {
   const [accountData, setAccountData] = useState(null);
   const [showConfirm, setShowConfirm] = useState(false);
   const [confirmId, setConfirmId] = useState(null);
+  //the all-transactions lists come a page at a time, nextPage holds where the next one starts
+  const [nextPage, setNextPage] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   const token = localStorage.getItem('token');
 
@@ -19,6 +22,7 @@ const AdminDashboard = () => {
       setLoading(true);
       setErrorMsg('');
       setAccountData(null);
+      setNextPage(null);
       const res = await axios.get(`${api}/bank/accounts`, {
         headers: { Authorization: `Bearer ${token}` },
       });
@@ -30,35 +34,42 @@ const AdminDashboard = () => {
     }
   };
 
-  const fetchAllTransactions = async () => {
+  const fetchTransactionPage = async (path, failMsg) => {
     try {
       setLoading(true);
       setErrorMsg('');
       setAccountData(null);
-      const res = await axios.get(`${api}/bank/transactions`, {
+      setNextPage(null);
+      const res = await axios.get(`${api}${path}`, {
         headers: { Authorization: `Bearer ${token}` },
       });
-      setTableData(res.data);
+      setTableData(res.data.transactions);
+      setNextPage(res.data.nextCursor ? { path, cursor: res.data.nextCursor, failMsg } : null);
     } catch (err) {
-      setErrorMsg('Failed to fetch transactions.');
+      setErrorMsg(failMsg);
     } finally {
       setLoading(false);
     }
   };
 
-  const fetchPendingTransactions = async () => {
+  const fetchAllTransactions = () => fetchTransactionPage('/bank/transactions', 'Failed to fetch transactions.');
+
+  const fetchPendingTransactions = () => fetchTransactionPage('/bank/transactions/pending', 'Failed to fetch pending transactions.');
+
+  const loadMoreTransactions = async () => {
     try {
-      setLoading(true);
+      setLoadingMore(true);
       setErrorMsg('');
-      setAccountData(null);
-      const res = await axios.get(`${api}/bank/transactions/pending`, {
+      const res = await axios.get(`${api}${nextPage.path}`, {
+        params: { cursor: nextPage.cursor },
         headers: { Authorization: `Bearer ${token}` },
       });
-      setTableData(res.data);
+      setTableData((prev) => [...prev, ...res.data.transactions]);
+      setNextPage(res.data.nextCursor ? { ...nextPage, cursor: res.data.nextCursor } : null);
     } catch (err) {
-      setErrorMsg('Failed to fetch pending transactions.');
+      setErrorMsg(nextPage.failMsg);
     } finally {
-      setLoading(false);
+      setLoadingMore(false);
     }
   };
 
@@ -70,6 +81,7 @@ const AdminDashboard = () => {
     try {
       setLoading(true);
       setErrorMsg('');
+      setNextPage(null);
       const res = await axios.get(`${api}/bank/accounts/${accountId}`, {
         headers: { Authorization: `Bearer ${token}` },
       });
@@ -91,6 +103,7 @@ const AdminDashboard = () => {
     try {
       setLoading(true);
       setErrorMsg('');
+      setNextPage(null);
       const res = await axios.get(`${api}/bank/transactions/${accountId}`, {
         headers: { Authorization: `Bearer ${token}` },
       });
@@ -111,6 +124,7 @@ const AdminDashboard = () => {
     try {
       setLoading(true);
       setErrorMsg('');
+      setNextPage(null);
       const res = await axios.get(`${api}/bank/transactions/pending/${accountId}`, {
         headers: { Authorization: `Bearer ${token}` },
       });
@@ -223,6 +237,11 @@ const AdminDashboard = () => {
               ))}
             </tbody>
           </table>
+          {nextPage && (
+            <button onClick={loadMoreTransactions} disabled={loadingMore} style={{ marginTop: '10px' }}>
+              {loadingMore ? 'Loading...' : 'Load More'}
+            </button>
+          )}
         </div>
       ) : (
         <p style={{ fontSize: '13px' }}>No data to display.</p>